@@ -0,0 +1,182 @@
+package de.intranda.goobi.plugins;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import de.intranda.goobi.plugins.ResourceLimits.LimitedTask;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Limits the parallel requests to the catalogue and adapts the limit to the catalogue: while the responses are fast, the limit grows by one
+ * request per round trip. Failed and slow responses reduce the limit to 70%, but only once for all requests, which were already running at
+ * that time. Failed requests are repeated with an increasing delay.
+ */
+@Log4j2
+public class AdaptiveConcurrencyLimit {
+
+    private static final double BACKOFF_RATIO = 0.7;
+
+    private static final int MIN_LIMIT = 1;
+
+    // number of response times used for the percentiles
+    private static final int WINDOW = 256;
+
+    @Getter
+    private final int maxLimit;
+
+    private final long slowResponse;
+
+    private final int retries;
+
+    private final long retryDelay;
+
+    private double limit;
+
+    private int inFlight;
+
+    // start of the last reduction, in nanoseconds
+    private long lastDecrease = System.nanoTime();
+
+    private final long[] latencies = new long[WINDOW];
+
+    private long latencyCount;
+
+    @Getter
+    private long requests;
+
+    @Getter
+    private long repetitions;
+
+    @Getter
+    private long failures;
+
+    /**
+     *
+     * @param initialLimit number of parallel requests at the start
+     * @param maxLimit highest number of parallel requests
+     * @param slowResponse response time in milliseconds, from which on a response counts as slow
+     * @param retries number of repetitions of a failed request
+     * @param retryDelay delay in milliseconds before the first repetition, doubled for each further repetition
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int maxLimit, long slowResponse, int retries, long retryDelay) {
+        this.maxLimit = Math.max(1, maxLimit);
+        this.limit = Math.max(MIN_LIMIT, Math.min(initialLimit, this.maxLimit));
+        this.slowResponse = TimeUnit.MILLISECONDS.toNanos(slowResponse);
+        this.retries = Math.max(0, retries);
+        this.retryDelay = retryDelay;
+    }
+
+    /**
+     * Run the request as soon as the limit allows it, repeat it if it fails
+     *
+     * @param task catalogue request
+     * @return result of the request
+     * @throws E exception of the last repetition
+     * @throws CancellationException if the thread is interrupted while it waits
+     */
+    public <T, E extends Exception> T call(LimitedTask<T, E> task) throws E {
+        long delay = retryDelay;
+        for (int attempt = 0;; attempt++) {
+            long start = acquire();
+            try {
+                T result = task.call();
+                release(start, true);
+                return result;
+            } catch (Exception e) {
+                release(start, false);
+                if (attempt >= retries) {
+                    synchronized (this) {
+                        failures++;
+                    }
+                    throw e;
+                }
+                log.warn("Catalogue request failed ({} of {}), limit is now {}: {}", attempt + 1, retries + 1, getLimit(), e.getMessage());
+            }
+            synchronized (this) {
+                repetitions++;
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for the catalogue");
+            }
+            delay *= 2;
+        }
+    }
+
+    private synchronized long acquire() {
+        while (inFlight >= (int) limit) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for the catalogue");
+            }
+        }
+        inFlight++;
+        requests++;
+        return System.nanoTime();
+    }
+
+    private synchronized void release(long start, boolean success) {
+        long latency = System.nanoTime() - start;
+        // the limit grows only, if it was used
+        boolean saturated = inFlight >= (int) limit;
+        inFlight--;
+        if (success) {
+            latencies[(int) (latencyCount++ % WINDOW)] = latency;
+        }
+        if (!success || slowResponse > 0 && latency > slowResponse) {
+            // requests, which started before the last reduction, were caused by the old limit
+            if (start > lastDecrease) {
+                limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+                lastDecrease = System.nanoTime();
+            }
+        } else if (saturated) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Current number of allowed parallel requests
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Number of running requests
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Response time of the recent successful requests
+     *
+     * @param percentile value between 0 and 100
+     * @return response time in milliseconds, 0 if there was no successful request yet
+     */
+    public synchronized long getLatency(double percentile) {
+        int count = (int) Math.min(latencyCount, WINDOW);
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, Math.min(count - 1, index))]);
+    }
+
+    /**
+     * Current state of the limit for the log
+     */
+    public synchronized String getStatus() {
+        return String.format("Catalogue: limit %d of %d, %d in flight, %d requests, %d repeated, %d failed, latency p50 %d ms, p90 %d ms, p99 %d ms",
+                getLimit(), maxLimit, inFlight, requests, repetitions, failures, getLatency(50), getLatency(90), getLatency(99));
+    }
+}
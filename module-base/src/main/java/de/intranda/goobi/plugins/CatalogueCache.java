@@ -0,0 +1,193 @@
+package de.intranda.goobi.plugins;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import ugh.dl.DigitalDocument;
+import ugh.dl.Fileformat;
+import ugh.dl.Prefs;
+import ugh.exceptions.UGHException;
+import ugh.fileformats.mets.MetsMods;
+
+/**
+ * Cache for catalogue responses. Each record is requested only once from the catalogue, every caller gets its own deep copy of the digital
+ * document, so it can be enriched without affecting the cached record.
+ */
+@Log4j2
+public class CatalogueCache {
+
+    /**
+     * Loads a record from the catalogue, if it is not cached yet
+     */
+    @FunctionalInterface
+    public interface Loader {
+        Fileformat load();
+    }
+
+    private final int maxEntries;
+
+    private final long timeToLive;
+
+    // pending requests and cached records, access only while holding the lock of the map
+    private final Map<String, CompletableFuture<CacheEntry>> entries;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     *
+     * @param maxEntries maximum number of cached records, the least recently used record gets removed first
+     * @param timeToLive time in milliseconds a cached record is valid
+     */
+    public CatalogueCache(int maxEntries, long timeToLive) {
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+        entries = new LinkedHashMap<String, CompletableFuture<CacheEntry>>(16, 0.75f, true) {
+            private static final long serialVersionUID = -4373658212474372478L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<CacheEntry>> eldest) {
+                return size() > CatalogueCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get a copy of the record for the given search, request it from the catalogue if it is not cached or expired. Only the first caller
+     * requests a missing record, parallel callers for the same record wait for its response. Requests of other records are not blocked.
+     *
+     * @param catalogue name of the catalogue
+     * @param searchField search field, e.g. 12 for the PPN
+     * @param searchValue value to search for
+     * @param prefs ruleset to use for the copy
+     * @param loader catalogue request, used on cache misses
+     * @return a fresh copy of the record or null, if the catalogue did not return anything
+     */
+    public Fileformat get(String catalogue, String searchField, String searchValue, Prefs prefs, Loader loader) {
+        String key = catalogue + "|" + searchField + "|" + searchValue;
+        CompletableFuture<CacheEntry> future;
+        boolean load = false;
+        synchronized (entries) {
+            future = entries.get(key);
+            if (future != null && future.isDone() && (future.join() == null || future.join().isExpired(timeToLive))) {
+                entries.remove(key);
+                future = null;
+            }
+            if (future == null) {
+                future = new CompletableFuture<>();
+                entries.put(key, future);
+                load = true;
+            }
+        }
+        if (load) {
+            misses.increment();
+            return load(key, future, prefs, loader);
+        }
+        CacheEntry entry = future.join();
+        if (entry == null) {
+            // the request of the other caller failed, try it again without the cache
+            return loader.load();
+        }
+        hits.increment();
+        return copy(key, entry, prefs, loader);
+    }
+
+    private Fileformat load(String key, CompletableFuture<CacheEntry> future, Prefs prefs, Loader loader) {
+        CacheEntry entry = null;
+        try {
+            Fileformat fileformat = loader.load();
+            if (fileformat == null) {
+                // don't cache failed requests, try it again for the next volume
+                return null;
+            }
+            try {
+                entry = new CacheEntry(fileformat.getDigitalDocument());
+            } catch (UGHException e) {
+                log.error(e);
+                return fileformat;
+            }
+        } finally {
+            if (entry == null) {
+                remove(key, future);
+            }
+            // wake up the waiting callers, also if the request failed
+            future.complete(entry);
+        }
+        return copy(key, entry, prefs, loader);
+    }
+
+    private Fileformat copy(String key, CacheEntry entry, Prefs prefs, Loader loader) {
+        // the copy runs outside of the lock, the cached document is only read
+        try {
+            MetsMods copy = new MetsMods(prefs);
+            copy.setDigitalDocument(entry.getDigitalDocument().copyDigitalDocument());
+            return copy;
+        } catch (UGHException e) {
+            // record cannot be copied, use a fresh catalogue response instead
+            log.error(e);
+            synchronized (entries) {
+                CompletableFuture<CacheEntry> current = entries.get(key);
+                if (current != null && current.getNow(null) == entry) {
+                    entries.remove(key);
+                }
+            }
+            return loader.load();
+        }
+    }
+
+    private void remove(String key, CompletableFuture<CacheEntry> future) {
+        synchronized (entries) {
+            if (entries.get(key) == future) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Number of records, which were taken from the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Number of records, which were requested from the catalogue
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Remove all cached records
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static class CacheEntry {
+        @Getter
+        private final DigitalDocument digitalDocument;
+        private final long created = System.currentTimeMillis();
+
+        CacheEntry(DigitalDocument digitalDocument) {
+            this.digitalDocument = digitalDocument;
+        }
+
+        boolean isExpired(long timeToLive) {
+            return timeToLive > 0 && System.currentTimeMillis() - created > timeToLive;
+        }
+    }
+}
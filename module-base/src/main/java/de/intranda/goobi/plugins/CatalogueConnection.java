@@ -0,0 +1,73 @@
+package de.intranda.goobi.plugins;
+
+import org.goobi.production.plugin.interfaces.IOpacPlugin;
+
+import de.sub.goobi.helper.exceptions.ImportPluginException;
+import de.unigoettingen.sub.search.opac.ConfigOpac;
+import de.unigoettingen.sub.search.opac.ConfigOpacCatalogue;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import ugh.dl.Fileformat;
+import ugh.dl.Prefs;
+
+/**
+ * The configured catalogue and its plugin, resolved once per import run. The catalogue plugins keep the state of the last request, so each
+ * thread gets its own plugin instance.
+ */
+@Log4j2
+public class CatalogueConnection implements CatalogueSource {
+
+    @Getter
+    private final ConfigOpacCatalogue catalogue;
+
+    private final IOpacPlugin plugin;
+
+    private final ThreadLocal<IOpacPlugin> threadPlugins;
+
+    public CatalogueConnection(ConfigOpacCatalogue catalogue, IOpacPlugin plugin) {
+        this.catalogue = catalogue;
+        this.plugin = plugin;
+        threadPlugins = ThreadLocal.withInitial(this::createPlugin);
+    }
+
+    /**
+     * Find the catalogue in goobi_opac.xml
+     *
+     * @param catalogueName title of the catalogue
+     * @return the first catalogue with the given title
+     * @throws ImportPluginException if the catalogue or its plugin does not exist
+     */
+    public static CatalogueConnection resolve(String catalogueName) throws ImportPluginException {
+        for (ConfigOpacCatalogue configOpacCatalogue : ConfigOpac.getInstance().getAllCatalogues("")) {
+            if (configOpacCatalogue.getTitle().equals(catalogueName)) {
+                IOpacPlugin plugin = configOpacCatalogue.getOpacPlugin();
+                if (plugin == null) {
+                    throw new ImportPluginException("No plugin is available for catalogue '" + catalogueName + "'");
+                }
+                return new CatalogueConnection(configOpacCatalogue, plugin);
+            }
+        }
+        throw new ImportPluginException("Catalogue '" + catalogueName + "' is not configured in goobi_opac.xml");
+    }
+
+    @Override
+    public Fileformat search(String id, Prefs prefs) throws Exception {
+        IOpacPlugin threadPlugin = threadPlugins.get();
+        if (threadPlugin == null) {
+            // plugin cannot be instantiated again, share the configured one
+            synchronized (plugin) {
+                return plugin.search("12", id, catalogue, prefs);
+            }
+        }
+        return threadPlugin.search("12", id, catalogue, prefs);
+    }
+
+    private IOpacPlugin createPlugin() {
+        try {
+            return plugin.getClass().getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            log.debug("Cannot create a new instance of {}", plugin.getClass().getName());
+            return null;
+        }
+    }
+}
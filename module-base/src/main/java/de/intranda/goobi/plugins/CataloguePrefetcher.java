@@ -0,0 +1,171 @@
+package de.intranda.goobi.plugins;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.log4j.Log4j2;
+import ugh.dl.Fileformat;
+
+/**
+ * Requests the records of all selected journals from the catalogue before the volumes are processed. The requests run in parallel, the number
+ * of parallel requests and the requests per second are limited. Failed requests are repeated with an increasing delay.
+ */
+@Log4j2
+public class CataloguePrefetcher {
+
+    /**
+     * A single catalogue request
+     */
+    @FunctionalInterface
+    public interface Search {
+        /**
+         * @param id PPN of the journal
+         * @return the record or null, if the catalogue does not know the PPN
+         * @throws Exception if the request failed and can be repeated
+         */
+        Fileformat search(String id) throws Exception;
+    }
+
+    private final int concurrency;
+
+    private final double requestsPerSecond;
+
+    private final int retries;
+
+    private final long retryDelay;
+
+    private final Map<String, Fileformat> records = new ConcurrentHashMap<>();
+
+    private final Set<String> failures = ConcurrentHashMap.newKeySet();
+
+    // earliest start of the next request, in nanoseconds
+    private long nextRequest;
+
+    /**
+     *
+     * @param concurrency maximum number of parallel requests
+     * @param requestsPerSecond maximum number of requests per second, 0 for no limit
+     * @param retries number of repetitions of a failed request
+     * @param retryDelay delay in milliseconds before the first repetition, doubled for each further repetition
+     */
+    public CataloguePrefetcher(int concurrency, double requestsPerSecond, int retries, long retryDelay) {
+        this.concurrency = Math.max(1, concurrency);
+        this.requestsPerSecond = requestsPerSecond;
+        this.retries = Math.max(0, retries);
+        this.retryDelay = retryDelay;
+    }
+
+    /**
+     * Request the records of the given journals, each PPN is requested only once
+     *
+     * @param ids PPNs of the journals
+     * @param search catalogue request
+     * @throws InterruptedException if the import was cancelled
+     */
+    public void prefetch(Collection<String> ids, Search search) throws InterruptedException {
+        Set<String> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.isEmpty()) {
+            return;
+        }
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, distinctIds.size()), r -> {
+            Thread thread = new Thread(r, "journals-import-catalogue-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Void>> requests = new ArrayList<>();
+            for (String id : distinctIds) {
+                requests.add(executor.submit(() -> {
+                    load(id, search);
+                    return null;
+                }));
+            }
+            for (Future<Void> request : requests) {
+                try {
+                    request.get();
+                } catch (ExecutionException e) {
+                    log.error(e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void load(String id, Search search) throws InterruptedException {
+        long delay = retryDelay;
+        for (int attempt = 0; attempt <= retries; attempt++) {
+            if (attempt > 0) {
+                TimeUnit.MILLISECONDS.sleep(delay);
+                delay *= 2;
+            }
+            waitForRateLimit();
+            try {
+                Fileformat fileformat = search.search(id);
+                if (fileformat == null) {
+                    // unknown PPN, a repetition would not change anything
+                    log.error("Catalogue did not return a record for {}", id);
+                    failures.add(id);
+                } else {
+                    records.put(id, fileformat);
+                }
+                return;
+            } catch (Exception e) {
+                log.warn("Catalogue request for {} failed ({} of {}): {}", id, attempt + 1, retries + 1, e.getMessage());
+            }
+        }
+        failures.add(id);
+    }
+
+    private void waitForRateLimit() throws InterruptedException {
+        if (requestsPerSecond <= 0) {
+            return;
+        }
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long start = Math.max(now, nextRequest);
+            nextRequest = start + (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+            wait = start - now;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Get the prefetched record of a journal. The record is handed out only once.
+     *
+     * @param id PPN of the journal
+     * @return the record or null, if it was not prefetched or already taken
+     */
+    public Fileformat take(String id) {
+        return records.remove(id);
+    }
+
+    /**
+     * Check if the record could not be requested, even after all repetitions
+     */
+    public boolean isFailed(String id) {
+        return failures.contains(id);
+    }
+
+    /**
+     * Get the number of successfully requested records, which were not taken yet
+     */
+    public int size() {
+        return records.size();
+    }
+}
@@ -0,0 +1,20 @@
+package de.intranda.goobi.plugins;
+
+import ugh.dl.Fileformat;
+import ugh.dl.Prefs;
+
+/**
+ * Provides the catalogue records of the journals, either from the live catalogue or from a local copy
+ */
+public interface CatalogueSource {
+
+    /**
+     * Search a record by its PPN
+     *
+     * @param id PPN
+     * @param prefs ruleset
+     * @return the record or null, if the catalogue does not know the PPN
+     * @throws Exception if the request failed
+     */
+    Fileformat search(String id, Prefs prefs) throws Exception;
+}
@@ -0,0 +1,130 @@
+package de.intranda.goobi.plugins;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * SHA-256 checksums of the images of a process, stored next to the master images folder. The file uses the format of sha256sum, so the
+ * images can be checked with 'sha256sum -c' as well.
+ *
+ * The manifest is written into the temporary folder of the process in the Goobi import folder and moved into the process together with the
+ * images, so it is only found again by a run, which continues an interrupted import. Later imports of the same images use the
+ * {@link ChecksumStore}.
+ */
+@Log4j2
+public class ChecksumManifest {
+
+    public static final String ALGORITHM = "SHA-256";
+    public static final String EXTENSION = ".sha256";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    @Getter
+    private final Path file;
+
+    // image name -> checksum
+    private final Map<String, String> checksums = new TreeMap<>();
+
+    private boolean modified;
+
+    /**
+     * Read the manifest of an image folder, if it exists
+     *
+     * @param imageFolder master images folder of the process
+     * @throws IOException if the existing manifest cannot be read
+     */
+    public ChecksumManifest(Path imageFolder) throws IOException {
+        file = imageFolder.resolveSibling(imageFolder.getFileName().toString() + EXTENSION);
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                // checksum, two spaces or space and asterisk, file name
+                if (line.length() < 67 || line.charAt(64) != ' ') {
+                    log.warn("Ignoring invalid checksum entry '{}' in {}", line, file);
+                    continue;
+                }
+                checksums.put(line.substring(66), line.substring(0, 64));
+            }
+        }
+    }
+
+    /**
+     * Get the stored checksum of an image
+     *
+     * @param name file name of the image in the process folder
+     * @return the checksum or null, if the image is unknown
+     */
+    public synchronized String getChecksum(String name) {
+        return checksums.get(name);
+    }
+
+    /**
+     * Store the checksum of a transferred image
+     */
+    public synchronized void put(String name, String checksum) {
+        if (!checksum.equals(checksums.put(name, checksum))) {
+            modified = true;
+        }
+    }
+
+    /**
+     * Number of images with a checksum
+     */
+    public synchronized int size() {
+        return checksums.size();
+    }
+
+    /**
+     * Write the manifest, if it was changed. The file is replaced at once, so an interrupted run never leaves a partial manifest.
+     */
+    public synchronized void save() throws IOException {
+        if (!modified) {
+            return;
+        }
+        Path temp = file.resolveSibling(file.getFileName().toString() + ".part");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> entry : checksums.entrySet()) {
+                writer.write(entry.getValue());
+                writer.write("  ");
+                writer.write(entry.getKey());
+                writer.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        modified = false;
+    }
+
+    /**
+     * Create a new digest for the checksums
+     */
+    public static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // every java runtime supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Convert a digest into its hex representation
+     */
+    public static String toHex(byte[] digest) {
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,211 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Checksums of the imported images, which are kept between the import runs. The checksum of an image in the import folder is stored with its
+ * size and modification time, so an unchanged image is not read again. A hard link to each transferred image is kept under its checksum, so
+ * images with the same content, e.g. of a volume imported again, are linked to the existing copy instead of being copied.
+ *
+ * The store is shared by all runs and nodes, which use the same Goobi import folder. Each line of the index contains the path of the image,
+ * its size, its modification time in nanoseconds and its checksum, separated by tabs. New entries are appended, later entries replace earlier
+ * ones. The copies stay in the store after their processes were deleted, images with a single link can be removed from it at any time.
+ */
+@Log4j2
+public class ChecksumStore {
+
+    public static final String FOLDER = "journals_import_content";
+    public static final String FILENAME = "journals_import_checksums.tsv";
+
+    @Getter
+    private final Path folder;
+
+    @Getter
+    private final Path file;
+
+    // image path -> size, modification time and checksum
+    private final Map<String, String[]> entries = new HashMap<>();
+
+    // entries, which are not written yet
+    private final StringBuilder added = new StringBuilder();
+
+    /**
+     * Read the stored checksums
+     *
+     * @param folder folder of the index and the copies
+     * @throws IOException if the folder cannot be created or the index cannot be read
+     */
+    public ChecksumStore(Path folder) throws IOException {
+        this.folder = folder;
+        file = folder.resolve(FILENAME);
+        Files.createDirectories(folder);
+        int lines = 0;
+        synchronized (ChecksumStore.class) {
+            try (FileChannel channel = openLock(); FileLock lock = channel.lock()) {
+                if (Files.exists(file)) {
+                    for (String line : new String(Files.readAllBytes(file), StandardCharsets.UTF_8).split("\n")) {
+                        String[] parts = line.split("\t");
+                        if (parts.length != 4 || parts[3].length() != 64) {
+                            if (!line.isEmpty()) {
+                                log.warn("Ignoring invalid checksum entry '{}' in {}", line, file);
+                            }
+                            continue;
+                        }
+                        entries.put(parts[0], new String[] { parts[1], parts[2], parts[3] });
+                        lines++;
+                    }
+                }
+                if (lines > 2 * entries.size()) {
+                    // images, which changed several times
+                    compact();
+                }
+            }
+        }
+    }
+
+    private FileChannel openLock() throws IOException {
+        // the file lock works between the nodes, the monitor between the threads of this node
+        return FileChannel.open(file.resolveSibling(FILENAME + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private void compact() throws IOException {
+        Path temp = Files.createTempFile(folder, FILENAME, ".part");
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, String[]> entry : entries.entrySet()) {
+                append(sb, entry.getKey(), entry.getValue());
+            }
+            Files.write(temp, sb.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void append(StringBuilder sb, String path, String[] entry) {
+        sb.append(path).append('\t').append(entry[0]).append('\t').append(entry[1]).append('\t').append(entry[2]).append('\n');
+    }
+
+    /**
+     * Get the stored checksum of an image in the import folder
+     *
+     * @param image image in the import folder
+     * @param size current size of the image
+     * @param modified current modification time of the image in nanoseconds
+     * @return the checksum or null, if the image is unknown or was changed
+     */
+    public synchronized String getChecksum(Path image, long size, long modified) {
+        String[] entry = entries.get(image.toAbsolutePath().toString());
+        if (entry == null || !entry[0].equals(String.valueOf(size)) || !entry[1].equals(String.valueOf(modified))) {
+            return null;
+        }
+        return entry[2];
+    }
+
+    /**
+     * Store the checksum of an image in the import folder
+     *
+     * @param image image in the import folder
+     * @param size size of the image, when the checksum was calculated
+     * @param modified modification time of the image in nanoseconds
+     * @param checksum checksum of the image
+     */
+    public synchronized void putChecksum(Path image, long size, long modified, String checksum) {
+        String path = image.toAbsolutePath().toString();
+        if (path.indexOf('\t') >= 0 || path.indexOf('\n') >= 0) {
+            return;
+        }
+        String[] entry = new String[] { String.valueOf(size), String.valueOf(modified), checksum };
+        entries.put(path, entry);
+        append(added, path, entry);
+    }
+
+    /**
+     * Get the stored copy of an image
+     *
+     * @param checksum checksum of the image
+     * @param size size of the image
+     * @return the copy or null, if no image with this content was stored
+     */
+    public Path getCopy(String checksum, long size) {
+        Path copy = getCopyPath(checksum);
+        try {
+            return Files.exists(copy) && Files.size(copy) == size ? copy : null;
+        } catch (IOException e) {
+            log.error(e);
+            return null;
+        }
+    }
+
+    /**
+     * Keep a transferred image under its checksum, unless an image with the same content is stored already
+     *
+     * @param checksum checksum of the image
+     * @param image transferred image, the copy is a hard link to it
+     */
+    public void keepCopy(String checksum, Path image) {
+        Path copy = getCopyPath(checksum);
+        try {
+            Files.createDirectories(copy.getParent());
+            Files.createLink(copy, image);
+        } catch (FileAlreadyExistsException e) {
+            // kept by another transfer
+        } catch (IOException | UnsupportedOperationException e) {
+            // the process folder is on a different file system
+            log.debug("Cannot keep a copy of {}: {}", image, e.getMessage());
+        }
+    }
+
+    private Path getCopyPath(String checksum) {
+        return folder.resolve(checksum.substring(0, 2)).resolve(checksum);
+    }
+
+    /**
+     * Append the new checksums to the index
+     */
+    public void save() throws IOException {
+        String content;
+        synchronized (this) {
+            if (added.length() == 0) {
+                return;
+            }
+            content = added.toString();
+            added.setLength(0);
+        }
+        synchronized (ChecksumStore.class) {
+            try (FileChannel channel = openLock(); FileLock lock = channel.lock()) {
+                if (Files.exists(file) && Files.size(file) > 0) {
+                    try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                        ByteBuffer last = ByteBuffer.allocate(1);
+                        in.read(last, in.size() - 1);
+                        if (last.get(0) != '\n') {
+                            // the last run was interrupted while writing
+                            content = "\n" + content;
+                        }
+                    }
+                }
+                Files.write(file, content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                // write the entries with the next save
+                synchronized (this) {
+                    added.insert(0, content.startsWith("\n") ? content.substring(1) : content);
+                }
+                throw e;
+            }
+        }
+    }
+}
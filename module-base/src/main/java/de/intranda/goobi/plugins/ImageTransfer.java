@@ -0,0 +1,471 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import de.intranda.goobi.plugins.ImportMetrics.Counter;
+import de.intranda.goobi.plugins.ImportMetrics.Phase;
+import de.intranda.goobi.plugins.ResourceLimits.LimitedTask;
+import de.intranda.goobi.plugins.ResourceLimits.Resource;
+import de.sub.goobi.config.ConfigurationHelper;
+import de.sub.goobi.helper.StorageProvider;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Copies, moves or links the images into the process folders in the background. The number of parallel transfers is limited, if too many
+ * transfers are waiting, the caller gets blocked until the queue has space again.
+ *
+ * If a checksum manifest is given, the checksums are calculated while the data is copied. Unchanged images are not copied again and moved
+ * images are verified before the source is deleted. An image counts as unchanged only if it still exists in the destination folder, so this
+ * applies to interrupted runs. With a checksum store the checksums of the images in the import folder are kept between the runs, unchanged
+ * images are not read again and images, whose content was already transferred, are linked to the stored copy instead of being copied.
+ *
+ * A throttle limits the files per second of all transfers and the bytes per second, that are copied or read for the checksums. The data is
+ * transferred in parts, the permits of the import folder and the process folders are only held while a part is read or written. So a
+ * transfer, which waits for the throttle, does not block the other transfers and stages.
+ */
+@Log4j2
+public class ImageTransfer implements AutoCloseable {
+
+    public static final String STRATEGY_COPY = "copy";
+    public static final String STRATEGY_MOVE = "move";
+    public static final String STRATEGY_LINK = "link";
+    public static final String STRATEGY_IGNORE = "ignore";
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final String strategy;
+
+    private final boolean useStorageProvider;
+
+    // threads and queue of the transfers
+    @Getter
+    private final PipelineStage stage;
+
+    // receives the transfer times and the copied bytes
+    @Setter
+    private ImportMetrics metrics = ImportMetrics.NOOP;
+
+    // checksums and copies of earlier transfers, null to calculate the checksums of each transfer
+    @Setter
+    private ChecksumStore checksumStore;
+
+    // parallel accesses to the import folder and the process folders
+    @Setter
+    private ResourceLimits limits = ResourceLimits.UNLIMITED;
+
+    // bytes and files per second of all transfers
+    @Setter
+    private TransferThrottle throttle = TransferThrottle.UNLIMITED;
+
+    /**
+     *
+     * @param strategy configured imageImportStrategy: copy, move, link or ignore
+     * @param threads number of parallel transfers
+     * @param queueSize maximum number of waiting transfers
+     */
+    public ImageTransfer(String strategy, int threads, int queueSize) {
+        // files on S3 can only be handled by the storage provider
+        this(strategy, threads, queueSize, ConfigurationHelper.getInstance().useS3());
+    }
+
+    /**
+     *
+     * @param strategy configured imageImportStrategy: copy, move, link or ignore
+     * @param threads number of parallel transfers
+     * @param queueSize maximum number of waiting transfers
+     * @param useStorageProvider transfer the images with the storage provider instead of the local file system
+     */
+    public ImageTransfer(String strategy, int threads, int queueSize, boolean useStorageProvider) {
+        this(strategy, new PipelineStage("transfer", threads, queueSize), useStorageProvider);
+    }
+
+    /**
+     *
+     * @param strategy configured imageImportStrategy: copy, move, link or ignore
+     * @param stage threads and queue of the transfers, gets closed with the transfer
+     */
+    public ImageTransfer(String strategy, PipelineStage stage) {
+        this(strategy, stage, ConfigurationHelper.getInstance().useS3());
+    }
+
+    /**
+     *
+     * @param strategy configured imageImportStrategy: copy, move, link or ignore
+     * @param stage threads and queue of the transfers, gets closed with the transfer
+     * @param useStorageProvider transfer the images with the storage provider instead of the local file system
+     */
+    public ImageTransfer(String strategy, PipelineStage stage, boolean useStorageProvider) {
+        this.strategy = strategy;
+        this.stage = stage;
+        this.useStorageProvider = useStorageProvider;
+    }
+
+    /**
+     * Check if the images shall be imported at all
+     */
+    public boolean isEnabled() {
+        return !STRATEGY_IGNORE.equalsIgnoreCase(strategy);
+    }
+
+    /**
+     * Transfer a single image in the background
+     *
+     * @param source image in the import folder
+     * @param destination image in the process folder
+     * @return finishes as soon as the image is transferred
+     */
+    public CompletableFuture<Void> submit(Path source, Path destination) {
+        return submit(source, destination, null);
+    }
+
+    /**
+     * Transfer a single image in the background and store its checksum
+     *
+     * @param source image in the import folder
+     * @param destination image in the process folder
+     * @param manifest checksums of the process images or null, to transfer the image without checksum
+     * @return finishes as soon as the image is transferred
+     */
+    public CompletableFuture<Void> submit(Path source, Path destination, ChecksumManifest manifest) {
+        return CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                throttle.acquireFile();
+                if (manifest == null) {
+                    transfer(source, destination);
+                } else {
+                    transfer(source, destination, manifest);
+                }
+                metrics.recordTime(Phase.TRANSFER, System.nanoTime() - start);
+            } catch (IOException e) {
+                throw new ImageTransferException(source, e);
+            }
+        }, stage);
+    }
+
+    /**
+     * Wait for all given transfers
+     *
+     * @param transfers submitted transfers
+     * @return finishes when all transfers are done, fails if one of them failed
+     */
+    public static CompletableFuture<Void> allOf(List<CompletableFuture<Void>> transfers) {
+        return CompletableFuture.allOf(transfers.toArray(new CompletableFuture[transfers.size()]));
+    }
+
+    private void transfer(Path source, Path destination) throws IOException {
+        if (STRATEGY_COPY.equalsIgnoreCase(strategy)) {
+            copy(source, destination);
+        } else if (STRATEGY_MOVE.equalsIgnoreCase(strategy)) {
+            access(() -> {
+                move(source, destination);
+                return null;
+            });
+        } else if (STRATEGY_LINK.equalsIgnoreCase(strategy)) {
+            link(source, destination);
+        }
+    }
+
+    private void transfer(Path source, Path destination, ChecksumManifest manifest) throws IOException {
+        String name = destination.getFileName().toString();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        // hard links to the stored copies only work within the local file system
+        ChecksumStore store = useStorageProvider ? null : checksumStore;
+        BasicFileAttributes attributes = null;
+        String known = null;
+        if (store != null) {
+            attributes = access(() -> Files.readAttributes(source, BasicFileAttributes.class));
+            known = store.getChecksum(source, attributes.size(), getModified(attributes));
+        }
+        if (isUnchanged(source, destination, manifest.getChecksum(name), known, buffer)) {
+            // imported by an earlier run
+            metrics.increment(Counter.FILES_UNCHANGED, 1);
+            if (STRATEGY_MOVE.equalsIgnoreCase(strategy)) {
+                delete(source);
+            }
+            return;
+        }
+        if (known != null && !STRATEGY_LINK.equalsIgnoreCase(strategy) && linkCopy(store.getCopy(known, attributes.size()), destination)) {
+            // the same content was transferred before
+            metrics.increment(Counter.FILES_DEDUPLICATED, 1);
+            manifest.put(name, known);
+            if (STRATEGY_MOVE.equalsIgnoreCase(strategy)) {
+                delete(source);
+            }
+            return;
+        }
+        if (store != null) {
+            // the destination may be linked to a stored copy, which must not be overwritten
+            delete(destination);
+        }
+        String checksum = null;
+        if (STRATEGY_MOVE.equalsIgnoreCase(strategy)) {
+            checksum = moveVerified(source, destination, buffer);
+        } else if (STRATEGY_COPY.equalsIgnoreCase(strategy) || STRATEGY_LINK.equalsIgnoreCase(strategy) && useStorageProvider) {
+            checksum = copy(source, destination, buffer);
+        } else if (STRATEGY_LINK.equalsIgnoreCase(strategy)) {
+            // a hard link has the same content, the checksum is only needed for later imports
+            link(source, destination);
+            checksum = known != null ? known : checksum(destination, buffer);
+        }
+        if (checksum == null) {
+            return;
+        }
+        manifest.put(name, checksum);
+        if (store != null) {
+            if (!STRATEGY_MOVE.equalsIgnoreCase(strategy)) {
+                // a moved image is not found again in the import folder
+                store.putChecksum(source, attributes.size(), getModified(attributes), checksum);
+            }
+            store.keepCopy(checksum, destination);
+        }
+    }
+
+    private static long getModified(BasicFileAttributes attributes) {
+        return attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Check if the destination has the stored checksum and the source still has the same content
+     *
+     * @param known checksum of the unchanged source from the checksum store, null to read the source
+     */
+    private boolean isUnchanged(Path source, Path destination, String checksum, String known, byte[] buffer) throws IOException {
+        if (checksum == null || !exists(destination) || size(destination) != size(source)) {
+            return false;
+        }
+        return checksum.equals(known != null ? known : checksum(source, buffer));
+    }
+
+    /**
+     * Link the destination to a stored copy with the same content
+     *
+     * @return false, if there is no copy or it cannot be linked
+     */
+    private boolean linkCopy(Path copy, Path destination) {
+        if (copy == null) {
+            return false;
+        }
+        try {
+            access(() -> {
+                Files.deleteIfExists(destination);
+                return Files.createLink(destination, copy);
+            });
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.debug("Cannot link {} to {}, transfer it instead", destination, copy);
+            return false;
+        }
+    }
+
+    /**
+     * Move an image. Within the same file system the file is renamed, otherwise it is copied, verified and deleted afterwards.
+     *
+     * @return the checksum of the image
+     */
+    private String moveVerified(Path source, Path destination, byte[] buffer) throws IOException {
+        if (!useStorageProvider) {
+            try {
+                access(() -> Files.move(source, destination, StandardCopyOption.ATOMIC_MOVE));
+                return checksum(destination, buffer);
+            } catch (AtomicMoveNotSupportedException e) {
+                // different file systems
+            }
+        }
+        String checksum = copy(source, destination, buffer);
+        String written = checksum(destination, buffer);
+        if (!checksum.equals(written)) {
+            throw new IOException("Checksum of " + destination + " is " + written + ", expected " + checksum);
+        }
+        delete(source);
+        return checksum;
+    }
+
+    /**
+     * Copy an image through the heap and calculate its checksum on the way, so the source is read only once
+     *
+     * @return the checksum of the image
+     */
+    private String copy(Path source, Path destination, byte[] buffer) throws IOException {
+        MessageDigest digest = ChecksumManifest.createDigest();
+        copy(source, destination, buffer, digest);
+        return ChecksumManifest.toHex(digest.digest());
+    }
+
+    /**
+     * Copy a file through the heap
+     *
+     * @param digest receives the copied data, null for a copy without checksum
+     */
+    private void copy(Path source, Path destination, byte[] buffer, MessageDigest digest) throws IOException {
+        long size = 0;
+        try (InputStream in = newInputStream(source); OutputStream out = newOutputStream(destination)) {
+            int read;
+            while ((read = read(in, buffer)) > 0) {
+                if (digest != null) {
+                    digest.update(buffer, 0, read);
+                }
+                int length = read;
+                access(() -> {
+                    out.write(buffer, 0, length);
+                    return null;
+                });
+                size += read;
+            }
+        }
+        metrics.increment(Counter.BYTES_COPIED, size);
+    }
+
+    private String checksum(Path file, byte[] buffer) throws IOException {
+        MessageDigest digest = ChecksumManifest.createDigest();
+        try (InputStream in = newInputStream(file)) {
+            int read;
+            while ((read = read(in, buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return ChecksumManifest.toHex(digest.digest());
+    }
+
+    /**
+     * Read the next part of a file, then wait for the throttle without holding the permits
+     */
+    private int read(InputStream in, byte[] buffer) throws IOException {
+        int read = access(() -> in.read(buffer));
+        if (read > 0) {
+            throttle.acquireBytes(read);
+        }
+        return read;
+    }
+
+    /**
+     * Access the import folder and the process folders, as soon as both are available
+     */
+    private <T> T access(LimitedTask<T, IOException> task) throws IOException {
+        return limits.call(Resource.SOURCE, () -> limits.call(Resource.TARGET, task));
+    }
+
+    private InputStream newInputStream(Path file) throws IOException {
+        return access(() -> useStorageProvider ? StorageProvider.getInstance().newInputStream(file) : Files.newInputStream(file));
+    }
+
+    private OutputStream newOutputStream(Path file) throws IOException {
+        return access(() -> useStorageProvider ? StorageProvider.getInstance().newOutputStream(file) : Files.newOutputStream(file));
+    }
+
+    private boolean exists(Path file) throws IOException {
+        return access(() -> useStorageProvider ? StorageProvider.getInstance().isFileExists(file) : Files.exists(file));
+    }
+
+    private long size(Path file) throws IOException {
+        return access(() -> useStorageProvider ? StorageProvider.getInstance().getFileSize(file) : Files.size(file));
+    }
+
+    private void delete(Path file) throws IOException {
+        access(() -> {
+            if (useStorageProvider) {
+                StorageProvider.getInstance().deleteFile(file);
+            } else {
+                Files.deleteIfExists(file);
+            }
+            return null;
+        });
+    }
+
+    private void copy(Path source, Path destination) throws IOException {
+        if (useStorageProvider && throttle.isEnabled()) {
+            // with a limit the data is copied in parts, so the limit applies during the copy
+            copy(source, destination, new byte[BUFFER_SIZE], null);
+            return;
+        }
+        if (useStorageProvider) {
+            long size = access(() -> Files.size(source));
+            access(() -> {
+                StorageProvider.getInstance().copyFile(source, destination);
+                return null;
+            });
+            metrics.increment(Counter.BYTES_COPIED, size);
+            return;
+        }
+        // let the kernel copy the data, without passing it through the heap
+        try (FileChannel in = access(() -> FileChannel.open(source, StandardOpenOption.READ));
+                FileChannel out = access(() -> FileChannel.open(destination, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING))) {
+            long size = in.size();
+            // with a limit the data is copied in small parts, so the waits are spread evenly
+            long chunk = throttle.isEnabled() ? BUFFER_SIZE : size;
+            long position = 0;
+            while (position < size) {
+                long start = position;
+                long length = Math.min(chunk, size - position);
+                long transferred = access(() -> in.transferTo(start, length, out));
+                if (transferred <= 0) {
+                    // the source became shorter while it was copied
+                    throw new IOException("Cannot copy " + source + ": only " + position + " of " + size + " bytes are readable");
+                }
+                // wait without holding the permits
+                throttle.acquireBytes(transferred);
+                position += transferred;
+            }
+            metrics.increment(Counter.BYTES_COPIED, size);
+        }
+    }
+
+    private void move(Path source, Path destination) throws IOException {
+        if (useStorageProvider) {
+            StorageProvider.getInstance().move(source, destination);
+            return;
+        }
+        // a rename within the same file system, copy and delete otherwise
+        Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void link(Path source, Path destination) throws IOException {
+        if (useStorageProvider) {
+            copy(source, destination);
+            return;
+        }
+        access(() -> Files.deleteIfExists(destination));
+        try {
+            access(() -> Files.createLink(destination, source));
+        } catch (IOException | UnsupportedOperationException e) {
+            // different file systems, fall back to a copy
+            log.debug("Cannot link {}, copy it instead", source);
+            copy(source, destination);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (throttle.isEnabled()) {
+            log.info("Image transfers waited {} ms in total for the transfer limits", throttle.getWaitTime());
+        }
+        stage.close();
+    }
+
+    /**
+     * A single image could not be transferred
+     */
+    public static class ImageTransferException extends RuntimeException {
+        private static final long serialVersionUID = 2637441860651788826L;
+
+        public ImageTransferException(Path source, IOException cause) {
+            super("Cannot import image " + source, cause);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package de.intranda.goobi.plugins;
+
+/**
+ * Receives the timings and counters of an import run. Implement this interface to forward the values to a monitoring system, by default they
+ * are only logged at the end of each run.
+ */
+public interface ImportMetrics {
+
+    /**
+     * Phases of the import of a volume
+     */
+    enum Phase {
+        SCAN,
+        // requests of all selected journals before the volumes are imported, wall clock time
+        PREFETCH,
+        // wait of each volume for its record
+        CATALOGUE,
+        STRUCTURE,
+        METS,
+        TRANSFER,
+        CLEANUP
+    }
+
+    /**
+     * Counted values of an import run
+     */
+    enum Counter {
+        VOLUMES,
+        VOLUMES_UNCHANGED,
+        ISSUES,
+        PAGES,
+        BYTES_COPIED,
+        FILES_UNCHANGED,
+        FILES_DEDUPLICATED,
+        CATALOGUE_FAILURES,
+        EMPTY_FOLDERS
+    }
+
+    /**
+     * Does nothing
+     */
+    ImportMetrics NOOP = new ImportMetrics() {
+        @Override
+        public void recordTime(Phase phase, long nanos) {
+        }
+
+        @Override
+        public void increment(Counter counter, long amount) {
+        }
+    };
+
+    /**
+     * Record the duration of a phase
+     *
+     * @param phase finished phase
+     * @param nanos duration in nanoseconds
+     */
+    void recordTime(Phase phase, long nanos);
+
+    /**
+     * Increase a counter
+     *
+     * @param counter counter to increase
+     * @param amount value to add
+     */
+    void increment(Counter counter, long amount);
+}
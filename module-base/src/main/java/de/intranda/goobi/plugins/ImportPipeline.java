@@ -0,0 +1,119 @@
+package de.intranda.goobi.plugins;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Stages of the import of the volumes: catalogue request, structure, METS file, image transfer and cleanup. The folders are scanned before,
+ * the image transfer has its own stage in {@link ImageTransfer}. Each stage has its own threads and a bounded queue, so a slow file system
+ * or catalogue slows down the stages before it instead of filling the memory with waiting volumes.
+ */
+@Log4j2
+public class ImportPipeline implements AutoCloseable {
+
+    @Getter
+    private final PipelineStage catalogue;
+    @Getter
+    private final PipelineStage build;
+    @Getter
+    private final PipelineStage mets;
+    @Getter
+    private final PipelineStage cleanup;
+
+    // maximum number of waiting volumes per stage
+    private final int queueSize;
+
+    // all stages in the order of the import, including the image transfer
+    private final List<PipelineStage> stages = new ArrayList<>();
+
+    private ScheduledExecutorService statusLog;
+
+    // adaptive limit of the catalogue requests, logged together with the stages
+    @Setter
+    private AdaptiveConcurrencyLimit catalogueLimit;
+
+    /**
+     *
+     * @param catalogueThreads number of volumes, which get their catalogue record at the same time
+     * @param buildThreads number of volumes, which get their structure at the same time
+     * @param metsThreads number of METS files written at the same time
+     * @param cleanupThreads number of volume folders cleaned up at the same time
+     * @param queueSize maximum number of waiting volumes per stage
+     * @param virtualThreads run the tasks in virtual threads, if the runtime supports them
+     * @param transfer stage of the image transfer, is only monitored and not closed by the pipeline
+     */
+    public ImportPipeline(int catalogueThreads, int buildThreads, int metsThreads, int cleanupThreads, int queueSize, boolean virtualThreads,
+            PipelineStage transfer) {
+        this.queueSize = queueSize;
+        catalogue = new PipelineStage("catalogue", catalogueThreads, queueSize, virtualThreads);
+        build = new PipelineStage("build", buildThreads, queueSize, virtualThreads);
+        mets = new PipelineStage("mets", metsThreads, queueSize, virtualThreads);
+        cleanup = new PipelineStage("cleanup", cleanupThreads, queueSize, virtualThreads);
+        stages.add(catalogue);
+        stages.add(build);
+        stages.add(mets);
+        stages.add(transfer);
+        stages.add(cleanup);
+    }
+
+    /**
+     * Maximum number of volumes, that can be in the stages of the pipeline at the same time
+     */
+    public int getCapacity() {
+        int capacity = 0;
+        for (PipelineStage stage : new PipelineStage[] { catalogue, build, mets, cleanup }) {
+            capacity += stage.getThreads() + queueSize;
+        }
+        return capacity;
+    }
+
+    /**
+     * Queue depth and utilization of all stages
+     */
+    public String getStatus() {
+        StringBuilder sb = new StringBuilder("Import pipeline");
+        for (PipelineStage stage : stages) {
+            sb.append("; ").append(stage.getStatus());
+        }
+        if (catalogueLimit != null) {
+            sb.append("; ").append(catalogueLimit.getStatus());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Write the status of the stages into the log regularly
+     *
+     * @param interval seconds between two log entries, 0 to disable the log
+     */
+    public void startStatusLog(long interval) {
+        if (interval <= 0) {
+            return;
+        }
+        statusLog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journals-import-status");
+            thread.setDaemon(true);
+            return thread;
+        });
+        statusLog.scheduleAtFixedRate(() -> log.info(getStatus()), interval, interval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void close() {
+        if (statusLog != null) {
+            statusLog.shutdownNow();
+        }
+        log.info(getStatus());
+        catalogue.close();
+        build.close();
+        mets.close();
+        cleanup.close();
+    }
+}
@@ -0,0 +1,203 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import de.intranda.goobi.plugins.JournalFolderScanner.JournalFolder;
+import de.intranda.goobi.plugins.JournalFolderScanner.VolumeFolder;
+import lombok.Getter;
+
+/**
+ * The processes an import would create, based on the folder structure only. Neither the catalogue nor the process folders are touched.
+ */
+public class ImportPlan {
+
+    @Getter
+    private final List<PlannedVolume> volumes = new ArrayList<>();
+
+    /**
+     * Create the plan for the scanned journal folders
+     *
+     * @param journals scanned journal folders
+     * @return planned volumes in the order they would be imported
+     */
+    public static ImportPlan create(Map<String, JournalFolder> journals) {
+        ImportPlan plan = new ImportPlan();
+        for (JournalFolder journal : journals.values()) {
+            for (VolumeFolder volumeFolder : journal.getVolumes().values()) {
+                plan.volumes.add(new PlannedVolume(journal.getName(), volumeFolder));
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Get the number of processes, that would be created
+     */
+    public int getProcessCount() {
+        int count = 0;
+        for (PlannedVolume volume : volumes) {
+            if (!volume.isEmpty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of empty volume folders, that would be skipped
+     */
+    public int getEmptyFolderCount() {
+        return volumes.size() - getProcessCount();
+    }
+
+    public long getPageCount() {
+        long pages = 0;
+        for (PlannedVolume volume : volumes) {
+            pages += volume.getPages();
+        }
+        return pages;
+    }
+
+    public long getSize() {
+        long size = 0;
+        for (PlannedVolume volume : volumes) {
+            size += volume.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * Write the plan as JSON object with the totals and the list of volumes
+     */
+    public void writeJson(Writer writer) throws IOException {
+        writer.write("{\n");
+        writer.write("  \"processes\": " + getProcessCount() + ",\n");
+        writer.write("  \"emptyFolders\": " + getEmptyFolderCount() + ",\n");
+        writer.write("  \"pages\": " + getPageCount() + ",\n");
+        writer.write("  \"bytes\": " + getSize() + ",\n");
+        writer.write("  \"volumes\": [");
+        for (int i = 0; i < volumes.size(); i++) {
+            PlannedVolume volume = volumes.get(i);
+            writer.write(i == 0 ? "\n" : ",\n");
+            writer.write("    {\"journal\": " + jsonString(volume.getJournalId()));
+            writer.write(", \"folder\": " + jsonString(volume.getFolderName()));
+            writer.write(", \"processTitle\": " + jsonString(volume.getProcessTitle()));
+            writer.write(", \"year\": " + jsonString(volume.getYear()));
+            writer.write(", \"currentNo\": " + jsonString(volume.getCurrentNo()));
+            writer.write(", \"issues\": " + volume.getIssues());
+            writer.write(", \"pages\": " + volume.getPages());
+            writer.write(", \"bytes\": " + volume.getSize());
+            writer.write(", \"empty\": " + volume.isEmpty() + "}");
+        }
+        writer.write("\n  ]\n}\n");
+    }
+
+    /**
+     * Write the plan as CSV, one line per volume folder
+     */
+    public void writeCsv(Writer writer) throws IOException {
+        writer.write("journal,folder,processTitle,year,currentNo,issues,pages,bytes,empty\n");
+        for (PlannedVolume volume : volumes) {
+            writer.write(csvString(volume.getJournalId()) + "," + csvString(volume.getFolderName()) + "," + csvString(volume.getProcessTitle())
+                    + "," + csvString(volume.getYear()) + "," + csvString(volume.getCurrentNo()) + "," + volume.getIssues() + ","
+                    + volume.getPages() + "," + volume.getSize() + "," + volume.isEmpty() + "\n");
+        }
+    }
+
+    /**
+     * Write the plan into a file, the format is chosen by the file extension: csv or json
+     */
+    public void write(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            if (file.getFileName().toString().toLowerCase().endsWith(".csv")) {
+                writeCsv(writer);
+            } else {
+                writeJson(writer);
+            }
+        }
+    }
+
+    private static String jsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static String csvString(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    /**
+     * A volume folder and the process it would become
+     */
+    public static class PlannedVolume {
+        @Getter
+        private final String journalId;
+        @Getter
+        private final String folderName;
+        @Getter
+        private final String processTitle;
+        @Getter
+        private final String year;
+        @Getter
+        private final String currentNo;
+        @Getter
+        private final int issues;
+        @Getter
+        private final int pages;
+        @Getter
+        private final long size;
+        // number of files, including the ones that don't become a page
+        private final int files;
+
+        PlannedVolume(String journalId, VolumeFolder volumeFolder) {
+            VolumeName volumeName = VolumeName.parse(journalId, volumeFolder.getName());
+            this.journalId = journalId;
+            folderName = volumeFolder.getName();
+            processTitle = volumeName.getProcessTitle();
+            year = volumeName.getYear();
+            currentNo = volumeName.getOrder();
+            issues = volumeFolder.getIssues().size();
+            int pageCount = 0;
+            for (Path image : volumeFolder.getImages()) {
+                if (VolumeStructureBuilder.isPage(image)) {
+                    pageCount++;
+                }
+            }
+            pages = pageCount;
+            size = volumeFolder.getSize();
+            files = volumeFolder.getImages().size();
+        }
+
+        /**
+         * Folders without images are skipped during the import
+         */
+        public boolean isEmpty() {
+            return files == 0;
+        }
+    }
+}
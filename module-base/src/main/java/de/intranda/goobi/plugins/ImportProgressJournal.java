@@ -0,0 +1,165 @@
+package de.intranda.goobi.plugins;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Append-only log of the import progress of each volume folder. If an import run gets interrupted, the next run skips the finished volumes and
+ * continues the unfinished ones. After a complete run the finished volumes are removed, so a later run imports them again.
+ *
+ * Each line contains the volume folder (journal/volume) and the reached state, separated by a tab.
+ */
+@Log4j2
+public class ImportProgressJournal implements AutoCloseable {
+
+    public static final String FILENAME = "journals_import_progress.log";
+
+    /**
+     * Steps of the import of a volume, in the order they are reached
+     */
+    public enum State {
+        SCANNED,
+        METS_WRITTEN,
+        IMAGES_TRANSFERRED,
+        CLEANED
+    }
+
+    private final Map<String, State> states = new HashMap<>();
+
+    private final Path file;
+
+    private final BufferedWriter writer;
+
+    /**
+     * Read the existing progress and open the file to append new entries
+     *
+     * @param file progress file
+     * @throws IOException if the file cannot be read or written
+     */
+    public ImportProgressJournal(Path file) throws IOException {
+        this.file = file;
+        boolean incompleteLine = false;
+        if (Files.exists(file)) {
+            String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            incompleteLine = !content.isEmpty() && !content.endsWith("\n");
+            for (String line : content.split("\n")) {
+                String[] parts = line.split("\t");
+                if (parts.length < 2) {
+                    // incomplete line, the last run was interrupted while writing
+                    continue;
+                }
+                try {
+                    states.put(parts[0], State.valueOf(parts[1]));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Ignoring invalid progress entry '{}'", line);
+                }
+            }
+        } else if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (incompleteLine) {
+            // start the new entries on a new line
+            writer.newLine();
+        }
+    }
+
+    /**
+     * Get the key of a volume folder
+     */
+    public static String getKey(String journalId, String volumeFolder) {
+        return journalId + "/" + volumeFolder;
+    }
+
+    /**
+     * Get the last reached state of a volume
+     *
+     * @return the state or null, if the volume was not imported before
+     */
+    public synchronized State getState(String key) {
+        return states.get(key);
+    }
+
+    /**
+     * Check if all steps of the volume are done
+     *
+     * @param key volume
+     * @param move true if the images get moved, then the source folder needs to be cleaned up as well
+     */
+    public synchronized boolean isFinished(String key, boolean move) {
+        State state = states.get(key);
+        return state == State.CLEANED || state == State.IMAGES_TRANSFERRED && !move;
+    }
+
+    /**
+     * Get the volumes of a journal with a written METS file, that are not finished yet
+     */
+    public synchronized List<String> getUnfinishedVolumes(String journalId, boolean move) {
+        List<String> volumes = new ArrayList<>();
+        String prefix = journalId + "/";
+        for (Map.Entry<String, State> entry : states.entrySet()) {
+            if (entry.getKey().startsWith(prefix) && entry.getValue().compareTo(State.METS_WRITTEN) >= 0 && !isFinished(entry.getKey(), move)) {
+                volumes.add(entry.getKey().substring(prefix.length()));
+            }
+        }
+        return volumes;
+    }
+
+    /**
+     * Store the reached state of a volume
+     */
+    public synchronized void record(String key, State state) {
+        states.put(key, state);
+        try {
+            writer.write(key + "\t" + state.name());
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            log.error(e);
+        }
+    }
+
+    /**
+     * Close the journal and remove the finished volumes from the file, only the volumes of failed or interrupted imports are kept. The file is
+     * deleted, if no volume is left.
+     *
+     * @param move true if the images get moved, then the source folder needs to be cleaned up as well
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void removeFinished(boolean move) throws IOException {
+        close();
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, State> entry : states.entrySet()) {
+            if (!isFinished(entry.getKey(), move)) {
+                lines.add(entry.getKey() + "\t" + entry.getValue().name());
+            }
+        }
+        if (lines.isEmpty()) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        Path temp = file.resolveSibling(file.getFileName().toString() + ".part");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.error(e);
+        }
+    }
+}
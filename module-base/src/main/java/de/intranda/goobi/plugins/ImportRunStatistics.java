@@ -0,0 +1,72 @@
+package de.intranda.goobi.plugins;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the timings and counters of a single import run and forwards them to the configured metrics
+ */
+public class ImportRunStatistics implements ImportMetrics {
+
+    private final ImportMetrics delegate;
+
+    private final Map<Phase, LongAdder> times = new EnumMap<>(Phase.class);
+
+    private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+
+    private final long start = System.nanoTime();
+
+    public ImportRunStatistics(ImportMetrics delegate) {
+        this.delegate = delegate;
+        for (Phase phase : Phase.values()) {
+            times.put(phase, new LongAdder());
+        }
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, new LongAdder());
+        }
+    }
+
+    @Override
+    public void recordTime(Phase phase, long nanos) {
+        times.get(phase).add(nanos);
+        delegate.recordTime(phase, nanos);
+    }
+
+    @Override
+    public void increment(Counter counter, long amount) {
+        counters.get(counter).add(amount);
+        delegate.increment(counter, amount);
+    }
+
+    /**
+     * Total time spent in a phase, summed up over all threads
+     *
+     * @param phase phase
+     * @return time in milliseconds
+     */
+    public long getTime(Phase phase) {
+        return TimeUnit.NANOSECONDS.toMillis(times.get(phase).sum());
+    }
+
+    public long getCount(Counter counter) {
+        return counters.get(counter).sum();
+    }
+
+    /**
+     * Summary of the run for the log file
+     */
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder("Import finished after ");
+        sb.append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).append(" ms");
+        for (Counter counter : Counter.values()) {
+            sb.append(", ").append(counter.name().toLowerCase()).append(": ").append(getCount(counter));
+        }
+        sb.append("; time per phase in ms (all threads)");
+        for (Phase phase : Phase.values()) {
+            sb.append(", ").append(phase.name().toLowerCase()).append(": ").append(getTime(phase));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,317 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.intranda.goobi.plugins.JournalFolderScanner.JournalFolder;
+import de.intranda.goobi.plugins.JournalFolderScanner.VolumeFolder;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * The part of the import folder a single Goobi node imports. The journals or volumes are split deterministically between the nodes, either
+ * by the hash of the PPN or by the size of the volumes. Each volume gets claimed with a lock file in the shared import folder, so a volume is
+ * never imported twice, even if the folder structure changed between the nodes.
+ *
+ * The distribution by size depends on all volumes, which are known at that time. So each volume keeps its shard in an assignment file in the
+ * shared import folder, only new volumes are distributed again. All nodes get the same shards, even if they saw different volumes.
+ */
+@Log4j2
+public class ImportShard {
+
+    public static final String STRATEGY_HASH = "hash";
+    public static final String STRATEGY_SIZE = "size";
+
+    public static final String LOCK_FOLDER = "journals_import_locks";
+
+    public static final String ASSIGNMENT_FILENAME = "journals_import_shards.tsv";
+
+    @Getter
+    private final int index;
+
+    @Getter
+    private final int count;
+
+    @Getter
+    private final String strategy;
+
+    // written into the lock files, a node may continue its own volumes
+    private final String owner;
+
+    // shard of each volume distributed by size, null to distribute only the given volumes
+    @Getter
+    private final Path assignmentFile;
+
+    /**
+     *
+     * @param index number of this shard, starting with 0
+     * @param count number of shards
+     * @param strategy hash or size
+     */
+    public ImportShard(int index, int count, String strategy) {
+        this(index, count, strategy, null);
+    }
+
+    /**
+     *
+     * @param index number of this shard, starting with 0
+     * @param count number of shards
+     * @param strategy hash or size
+     * @param assignmentFile file in the shared import folder, which keeps the shard of each volume distributed by size
+     */
+    public ImportShard(int index, int count, String strategy, Path assignmentFile) {
+        this.index = index;
+        this.count = Math.max(1, count);
+        this.strategy = strategy;
+        this.assignmentFile = assignmentFile;
+        owner = getHostName() + "\t" + index;
+    }
+
+    /**
+     * Check if the import is split at all
+     */
+    public boolean isEnabled() {
+        return count > 1;
+    }
+
+    /**
+     * Check if the volumes get distributed by their size, then each journal may contain volumes of this shard
+     */
+    public boolean isSizeBased() {
+        return isEnabled() && STRATEGY_SIZE.equalsIgnoreCase(strategy);
+    }
+
+    /**
+     * Check if the journal belongs to this shard. If the volumes are distributed by size, each journal may contain volumes of this shard.
+     */
+    public boolean containsJournal(String journalId) {
+        if (!isEnabled() || isSizeBased()) {
+            return true;
+        }
+        return Math.floorMod(journalId.hashCode(), count) == index;
+    }
+
+    /**
+     * Get the volumes of this shard
+     *
+     * @param journals scanned journal folders
+     * @return keys (journal/volume) of the scanned volumes of this shard
+     */
+    public Set<String> getVolumes(Map<String, JournalFolder> journals) {
+        Set<String> volumes = new HashSet<>();
+        if (!isSizeBased()) {
+            for (JournalFolder journal : journals.values()) {
+                if (containsJournal(journal.getName())) {
+                    for (String volume : journal.getVolumes().keySet()) {
+                        volumes.add(ImportProgressJournal.getKey(journal.getName(), volume));
+                    }
+                }
+            }
+            return volumes;
+        }
+
+        Map<String, Long> sizes = new HashMap<>();
+        for (JournalFolder journal : journals.values()) {
+            for (VolumeFolder volume : journal.getVolumes().values()) {
+                sizes.put(ImportProgressJournal.getKey(journal.getName(), volume.getName()), volume.getSize());
+            }
+        }
+        return getVolumesBySize(sizes);
+    }
+
+    /**
+     * Get the volumes of this shard, if the volumes are distributed by their size. With an assignment file the volumes keep their shard from
+     * earlier calls, only the new volumes are distributed.
+     *
+     * @param sizes size in bytes of the volumes (journal/volume)
+     * @return keys (journal/volume) of the given volumes of this shard, empty if the assignment file cannot be read or written
+     */
+    public Set<String> getVolumesBySize(Map<String, Long> sizes) {
+        Map<String, Integer> assignment = new HashMap<>();
+        if (assignmentFile == null) {
+            assign(sizes, assignment, new long[count]);
+        } else {
+            try {
+                assignment = assignPersistent(sizes);
+            } catch (IOException e) {
+                // without the common distribution this node imports nothing, so no volume gets imported twice
+                log.error("Cannot read the shard assignment {}", assignmentFile, e);
+                return new HashSet<>();
+            }
+        }
+        Set<String> volumes = new HashSet<>();
+        for (String key : sizes.keySet()) {
+            Integer shard = assignment.get(key);
+            if (shard != null && shard == index) {
+                volumes.add(key);
+            }
+        }
+        return volumes;
+    }
+
+    /**
+     * Distribute the volumes without a shard, the largest volume first, always into the shard with the smallest total size
+     *
+     * @return the distributed volumes
+     */
+    private List<String> assign(Map<String, Long> sizes, Map<String, Integer> assignment, long[] shardSizes) {
+        List<String> keys = new ArrayList<>();
+        for (String key : sizes.keySet()) {
+            if (!assignment.containsKey(key)) {
+                keys.add(key);
+            }
+        }
+        Collections.sort(keys, (a, b) -> {
+            int result = Long.compare(sizes.get(b), sizes.get(a));
+            return result != 0 ? result : a.compareTo(b);
+        });
+        for (String key : keys) {
+            int shard = 0;
+            for (int i = 1; i < count; i++) {
+                if (shardSizes[i] < shardSizes[shard]) {
+                    shard = i;
+                }
+            }
+            shardSizes[shard] += sizes.get(key);
+            assignment.put(key, shard);
+        }
+        return keys;
+    }
+
+    /**
+     * Read the stored shards and append the new volumes. Each line contains the volume (journal/volume), its shard and its size, separated by
+     * tabs.
+     */
+    private Map<String, Integer> assignPersistent(Map<String, Long> sizes) throws IOException {
+        Map<String, Integer> assignment = new HashMap<>();
+        long[] shardSizes = new long[count];
+        if (assignmentFile.getParent() != null) {
+            Files.createDirectories(assignmentFile.getParent());
+        }
+        Path lockFile = assignmentFile.resolveSibling(assignmentFile.getFileName().toString() + ".lock");
+        // the file lock works between the nodes, the monitor between the threads of this node
+        synchronized (ImportShard.class) {
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    FileLock lock = channel.lock()) {
+                boolean incompleteLine = false;
+                if (Files.exists(assignmentFile)) {
+                    String content = new String(Files.readAllBytes(assignmentFile), StandardCharsets.UTF_8);
+                    incompleteLine = !content.isEmpty() && !content.endsWith("\n");
+                    for (String line : content.split("\n")) {
+                        readAssignment(line, assignment, shardSizes);
+                    }
+                }
+                List<String> added = assign(sizes, assignment, shardSizes);
+                if (!added.isEmpty()) {
+                    StringBuilder sb = new StringBuilder();
+                    if (incompleteLine) {
+                        // the last node was interrupted while writing
+                        sb.append('\n');
+                    }
+                    for (String key : added) {
+                        sb.append(key).append('\t').append(assignment.get(key)).append('\t').append(sizes.get(key)).append('\n');
+                    }
+                    Files.write(assignmentFile, sb.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                            StandardOpenOption.APPEND);
+                }
+            }
+        }
+        return assignment;
+    }
+
+    private void readAssignment(String line, Map<String, Integer> assignment, long[] shardSizes) {
+        String[] parts = line.split("\t");
+        if (parts.length != 3) {
+            if (!line.isEmpty()) {
+                log.warn("Ignoring invalid shard assignment '{}'", line);
+            }
+            return;
+        }
+        try {
+            int shard = Integer.parseInt(parts[1]);
+            long size = Long.parseLong(parts[2]);
+            if (shard < 0 || shard >= count) {
+                // written with more shards, the volume gets distributed again
+                return;
+            }
+            assignment.put(parts[0], shard);
+            shardSizes[shard] += size;
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring invalid shard assignment '{}'", line);
+        }
+    }
+
+    /**
+     * Claim a volume for this node
+     *
+     * @param importFolder shared import folder
+     * @param processTitle title of the volume process
+     * @return true if this node may import the volume, false if another node claimed it already
+     */
+    public boolean claim(Path importFolder, String processTitle) {
+        Path lockFile = getLockFile(importFolder, processTitle);
+        try {
+            Files.createDirectories(lockFile.getParent());
+            Files.write(lockFile, owner.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            // continue an interrupted import of this node
+            try {
+                return owner.equals(new String(Files.readAllBytes(lockFile), StandardCharsets.UTF_8));
+            } catch (IOException e1) {
+                log.error(e1);
+                return false;
+            }
+        } catch (IOException e) {
+            log.error(e);
+            return false;
+        }
+    }
+
+    /**
+     * Release the claim of a finished or failed volume, so a later run may import it again. Claims of other nodes are kept.
+     *
+     * @param importFolder shared import folder
+     * @param processTitle title of the volume process
+     */
+    public void release(Path importFolder, String processTitle) {
+        Path lockFile = getLockFile(importFolder, processTitle);
+        try {
+            if (owner.equals(new String(Files.readAllBytes(lockFile), StandardCharsets.UTF_8))) {
+                Files.delete(lockFile);
+            }
+        } catch (NoSuchFileException e) {
+            // already released
+        } catch (IOException e) {
+            log.error(e);
+        }
+    }
+
+    private Path getLockFile(Path importFolder, String processTitle) {
+        return importFolder.resolve(LOCK_FOLDER).resolve(processTitle + ".lock");
+    }
+
+    private static String getHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Walks the import folder once and collects the journal folders, their volume folders, the issue sub folders and the images.
+ *
+ * <pre>
+ * basedir
+ *   journal folder (PPN)
+ *     volume folder (PPN_yyyy, PPN_yyyy_n, yyyy or yyyy_n)
+ *       images
+ *       issue folder
+ *         images
+ * </pre>
+ */
+@Log4j2
+public class JournalFolderScanner {
+
+    private static final Pattern JOURNAL_FOLDER = Pattern.compile("\\d+X?");
+
+    private static final Pattern VOLUME_FOLDER = Pattern.compile("(\\d+X?_)?\\d{4}(_\\d+)?");
+
+    private static final Pattern NON_WORD_CHARACTERS = Pattern.compile("\\W");
+
+    private static final int JOURNAL_DEPTH = 1;
+    private static final int VOLUME_DEPTH = 2;
+    private static final int ISSUE_DEPTH = 3;
+    private static final int IMAGE_DEPTH = 4;
+
+    /**
+     * Check if a folder name is the PPN of a journal
+     */
+    public static boolean isJournalFolder(String name) {
+        return JOURNAL_FOLDER.matcher(name).matches();
+    }
+
+    /**
+     * List the names of all journal folders within the import folder
+     *
+     * @param basedir import folder
+     * @return sorted list of journal folder names
+     */
+    public List<String> listJournals(Path basedir) {
+        return new ArrayList<>(walk(basedir, null, JOURNAL_DEPTH).keySet());
+    }
+
+    /**
+     * Collect the volumes, issues and images of the given journals
+     *
+     * @param basedir import folder
+     * @param journalIds names of the journal folders to scan, all other folders are skipped
+     * @return journal folders, sorted by name
+     */
+    public Map<String, JournalFolder> scan(Path basedir, Collection<String> journalIds) {
+        return walk(basedir, new HashSet<>(journalIds), IMAGE_DEPTH);
+    }
+
+    /**
+     * Get all journal folders with their volumes, issues and images
+     *
+     * @param basedir import folder
+     * @return journal folders, sorted by name
+     */
+    public Map<String, JournalFolder> scan(Path basedir) {
+        return walk(basedir, null, IMAGE_DEPTH);
+    }
+
+    private Map<String, JournalFolder> walk(Path basedir, Set<String> journalIds, int maxDepth) {
+        Map<String, JournalFolder> journals = new TreeMap<>();
+        if (!Files.isDirectory(basedir)) {
+            log.error("Import folder {} does not exist", basedir);
+            return journals;
+        }
+        try {
+            Files.walkFileTree(basedir, EnumSet.noneOf(FileVisitOption.class), maxDepth, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (dir.equals(basedir)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    return visitFolder(basedir.relativize(dir), dir, journals, journalIds);
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    Path relative = basedir.relativize(file);
+                    if (attrs.isDirectory() && relative.getNameCount() == JOURNAL_DEPTH) {
+                        // journal folders are not entered, if only the journals are listed
+                        visitFolder(relative, file, journals, journalIds);
+                    } else if (attrs.isRegularFile()) {
+                        visitImage(relative, file, attrs, journals);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    log.error(exc);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.error(e);
+        }
+        for (JournalFolder journal : journals.values()) {
+            for (VolumeFolder volume : journal.getVolumes().values()) {
+                Collections.sort(volume.getImages());
+                for (IssueFolder issue : volume.getIssues().values()) {
+                    Collections.sort(issue.getImages());
+                }
+            }
+        }
+        return journals;
+    }
+
+    private FileVisitResult visitFolder(Path relative, Path dir, Map<String, JournalFolder> journals, Set<String> journalIds) {
+        String name = dir.getFileName().toString();
+        switch (relative.getNameCount()) {
+            case JOURNAL_DEPTH:
+                if (!JOURNAL_FOLDER.matcher(name).matches() || journalIds != null && !journalIds.contains(name)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                journals.put(name, new JournalFolder(name, dir));
+                return FileVisitResult.CONTINUE;
+            case VOLUME_DEPTH:
+                if (!VOLUME_FOLDER.matcher(name).matches()) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                JournalFolder journal = journals.get(relative.getName(0).toString());
+                journal.getVolumes().put(name, new VolumeFolder(name, dir));
+                return FileVisitResult.CONTINUE;
+            case ISSUE_DEPTH:
+                // issue folder, gets registered with its first image
+                return FileVisitResult.CONTINUE;
+            default:
+                return FileVisitResult.SKIP_SUBTREE;
+        }
+    }
+
+    private void visitImage(Path relative, Path file, BasicFileAttributes attrs, Map<String, JournalFolder> journals) {
+        int depth = relative.getNameCount();
+        if (depth != ISSUE_DEPTH && depth != IMAGE_DEPTH) {
+            // files within the journal folder do not belong to a volume
+            return;
+        }
+        VolumeFolder volume = journals.get(relative.getName(0).toString()).getVolumes().get(relative.getName(1).toString());
+        volume.getImages().add(file);
+        volume.size += attrs.size();
+        volume.lastModified = Math.max(volume.lastModified, attrs.lastModifiedTime().toMillis());
+        if (depth == IMAGE_DEPTH) {
+            String issueName = relative.getName(2).toString();
+            volume.getIssues().computeIfAbsent(issueName, k -> new IssueFolder(issueName, file.getParent())).getImages().add(file);
+        }
+    }
+
+    /**
+     * A journal folder, named after the PPN of the journal
+     */
+    public static class JournalFolder {
+        @Getter
+        private final String name;
+        @Getter
+        private final Path path;
+        @Getter
+        private final Map<String, VolumeFolder> volumes = new TreeMap<>();
+
+        public JournalFolder(String name, Path path) {
+            this.name = name;
+            this.path = path;
+        }
+    }
+
+    /**
+     * A volume folder, contains the images of the volume either directly or within issue sub folders
+     */
+    public static class VolumeFolder {
+        @Getter
+        private final String name;
+        @Getter
+        private final Path path;
+        // all images of the volume, including the images of the issues
+        @Getter
+        private final List<Path> images = new ArrayList<>();
+        @Getter
+        private final Map<String, IssueFolder> issues = new TreeMap<>();
+        // total size of all files in bytes
+        @Getter
+        private long size;
+        // newest modification time of all files in milliseconds
+        @Getter
+        private long lastModified;
+
+        public VolumeFolder(String name, Path path) {
+            this.name = name;
+            this.path = path;
+        }
+
+        /**
+         * Forget the images of the volume, after it was imported
+         */
+        public void release() {
+            images.clear();
+            issues.clear();
+        }
+    }
+
+    /**
+     * An issue sub folder within a volume folder
+     */
+    public static class IssueFolder {
+        @Getter
+        private final String name;
+        @Getter
+        private final Path path;
+        @Getter
+        private final List<Path> images = new ArrayList<>();
+        // prefix of the image names in the process folder
+        @Getter
+        private final String imagePrefix;
+
+        public IssueFolder(String name, Path path) {
+            this.name = name;
+            this.path = path;
+            imagePrefix = createImagePrefix(name);
+        }
+
+        /**
+         * Get the prefix of the image names of an issue: the folder name without special characters
+         */
+        public static String createImagePrefix(String issueFolder) {
+            return NON_WORD_CHARACTERS.matcher(issueFolder).replaceAll("") + "_";
+        }
+    }
+}
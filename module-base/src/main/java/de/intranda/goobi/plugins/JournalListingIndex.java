@@ -0,0 +1,318 @@
+package de.intranda.goobi.plugins;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import de.intranda.goobi.plugins.JournalFolderScanner.JournalFolder;
+import de.intranda.goobi.plugins.JournalFolderScanner.VolumeFolder;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Stored listing of the journal folders in the import folder with the number of volumes and images, their size and the newest modification
+ * time. The listing is refreshed by comparing the modification times of the journal folders, only new and changed journals are scanned
+ * again. Images added to an existing volume do not change the journal folder, so each journal is also scanned again after a rescan interval.
+ *
+ * Each line contains the journal, the number of volumes and images, the size in bytes, the newest modification time of the images, the
+ * modification time of the journal folder, the time of the last scan and then for each volume folder its name and size in bytes, separated by
+ * tabs.
+ */
+@Log4j2
+public class JournalListingIndex {
+
+    public static final String FILENAME = "journals_listing_index.tsv";
+
+    private static final int FIXED_COLUMNS = 7;
+
+    @Getter
+    private final Path basedir;
+
+    @Getter
+    private final Path file;
+
+    private final Map<String, JournalEntry> journals = new TreeMap<>();
+
+    private boolean modified;
+
+    /**
+     * Read the listing, if it exists
+     *
+     * @param basedir import folder
+     * @param file listing file
+     * @throws IOException if the existing listing cannot be read
+     */
+    public JournalListingIndex(Path basedir, Path file) throws IOException {
+        this.basedir = basedir;
+        this.file = file;
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                JournalEntry entry = parse(line);
+                if (entry == null) {
+                    log.warn("Ignoring invalid listing entry '{}'", line);
+                } else {
+                    journals.put(entry.getId(), entry);
+                }
+            }
+        }
+    }
+
+    private static JournalEntry parse(String line) {
+        String[] parts = line.split("\t");
+        if (parts.length < FIXED_COLUMNS || (parts.length - FIXED_COLUMNS) % 2 != 0) {
+            return null;
+        }
+        try {
+            Map<String, Long> volumeSizes = new LinkedHashMap<>();
+            for (int i = FIXED_COLUMNS; i < parts.length; i += 2) {
+                volumeSizes.put(parts[i], Long.parseLong(parts[i + 1]));
+            }
+            return new JournalEntry(parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Long.parseLong(parts[3]),
+                    Long.parseLong(parts[4]), Long.parseLong(parts[5]), Long.parseLong(parts[6]), volumeSizes);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Check if the listing was refreshed within the given time
+     *
+     * @param maxAge time in milliseconds
+     */
+    public boolean isRecent(long maxAge) throws IOException {
+        return maxAge > 0 && Files.exists(file) && System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() < maxAge;
+    }
+
+    /**
+     * Add new journal folders, remove deleted ones and scan the journals again, whose folders were changed
+     *
+     * @return number of scanned journals
+     * @throws IOException if the import folder cannot be listed
+     */
+    public int refresh() throws IOException {
+        return refresh(0);
+    }
+
+    /**
+     * Add new journal folders, remove deleted ones and scan the journals again, whose folders were changed or which were not scanned within
+     * the rescan interval
+     *
+     * @param rescanInterval time in milliseconds, 0 to scan only changed journal folders
+     * @return number of scanned journals
+     * @throws IOException if the import folder cannot be listed
+     */
+    public synchronized int refresh(long rescanInterval) throws IOException {
+        long now = System.currentTimeMillis();
+        Map<String, Long> current = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(basedir)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (JournalFolderScanner.isJournalFolder(name)) {
+                    BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (attrs.isDirectory()) {
+                        current.put(name, attrs.lastModifiedTime().toMillis());
+                    }
+                }
+            }
+        }
+
+        if (journals.keySet().retainAll(current.keySet())) {
+            modified = true;
+        }
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, Long> journal : current.entrySet()) {
+            JournalEntry entry = journals.get(journal.getKey());
+            if (entry == null || entry.getFolderModified() != journal.getValue()
+                    || (rescanInterval > 0 && now - entry.getScanned() >= rescanInterval)) {
+                changed.add(journal.getKey());
+            }
+        }
+        if (changed.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, JournalFolder> scanned = new JournalFolderScanner().scan(basedir, changed);
+        for (String journalId : changed) {
+            JournalFolder journal = scanned.get(journalId);
+            if (journal == null) {
+                // removed during the refresh
+                journals.remove(journalId);
+            } else {
+                journals.put(journalId, createEntry(journal, current.get(journalId), now));
+            }
+        }
+        modified = true;
+        return changed.size();
+    }
+
+    private JournalEntry createEntry(JournalFolder journal, long folderModified, long scanned) {
+        int images = 0;
+        long bytes = 0;
+        long lastModified = 0;
+        Map<String, Long> volumeSizes = new LinkedHashMap<>();
+        for (VolumeFolder volume : journal.getVolumes().values()) {
+            images += volume.getImages().size();
+            bytes += volume.getSize();
+            lastModified = Math.max(lastModified, volume.getLastModified());
+            if (volume.getName().indexOf('\t') < 0) {
+                volumeSizes.put(volume.getName(), volume.getSize());
+            }
+        }
+        return new JournalEntry(journal.getName(), journal.getVolumes().size(), images, bytes, lastModified, folderModified, scanned,
+                volumeSizes);
+    }
+
+    /**
+     * Get a page of the journals, sorted by their PPN
+     *
+     * @param filter part of the PPN, empty or null for all journals
+     * @param offset number of matching journals to skip
+     * @param limit maximum number of journals, 0 for all
+     */
+    public synchronized List<JournalEntry> getJournals(String filter, int offset, int limit) {
+        List<JournalEntry> page = new ArrayList<>();
+        int skipped = 0;
+        for (JournalEntry entry : journals.values()) {
+            if (!entry.matches(filter)) {
+                continue;
+            }
+            if (skipped++ < offset) {
+                continue;
+            }
+            if (limit > 0 && page.size() == limit) {
+                break;
+            }
+            page.add(entry);
+        }
+        return page;
+    }
+
+    /**
+     * Number of journals with the given part of the PPN
+     */
+    public synchronized int count(String filter) {
+        int count = 0;
+        for (JournalEntry entry : journals.values()) {
+            if (entry.matches(filter)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the names of all journal folders, sorted by name
+     */
+    public synchronized List<String> getJournalIds() {
+        return new ArrayList<>(journals.keySet());
+    }
+
+    /**
+     * Get the size of each volume folder, e.g. to distribute the volumes between the nodes without scanning the folders
+     *
+     * @return size in bytes of each volume (journal/volume)
+     */
+    public synchronized Map<String, Long> getVolumeSizes() {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        for (JournalEntry entry : journals.values()) {
+            for (Map.Entry<String, Long> volume : entry.getVolumeSizes().entrySet()) {
+                sizes.put(ImportProgressJournal.getKey(entry.getId(), volume.getKey()), volume.getValue());
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * Number of journals in the listing
+     */
+    public synchronized int size() {
+        return journals.size();
+    }
+
+    /**
+     * Write the listing, if it was changed. Otherwise only the modification time of the file is updated to mark the refresh.
+     */
+    public synchronized void save() throws IOException {
+        if (!modified && Files.exists(file)) {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return;
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        // a temporary file of its own, so that concurrent refreshes of the listing do not write into the same file
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".part");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (JournalEntry entry : journals.values()) {
+                    writer.write(entry.getId() + "\t" + entry.getVolumes() + "\t" + entry.getImages() + "\t" + entry.getBytes() + "\t"
+                            + entry.getLastModified() + "\t" + entry.getFolderModified() + "\t" + entry.getScanned());
+                    for (Map.Entry<String, Long> volume : entry.getVolumeSizes().entrySet()) {
+                        writer.write("\t" + volume.getKey() + "\t" + volume.getValue());
+                    }
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        modified = false;
+    }
+
+    /**
+     * A journal folder with the totals of its volumes
+     */
+    public static class JournalEntry {
+        @Getter
+        private final String id;
+        @Getter
+        private final int volumes;
+        @Getter
+        private final int images;
+        // total size of all images in bytes
+        @Getter
+        private final long bytes;
+        // newest modification time of all images in milliseconds
+        @Getter
+        private final long lastModified;
+        // modification time of the journal folder in milliseconds
+        @Getter
+        private final long folderModified;
+        // time of the last scan of the journal folder in milliseconds
+        @Getter
+        private final long scanned;
+        // size of each volume folder in bytes
+        @Getter
+        private final Map<String, Long> volumeSizes;
+
+        public JournalEntry(String id, int volumes, int images, long bytes, long lastModified, long folderModified, long scanned,
+                Map<String, Long> volumeSizes) {
+            this.id = id;
+            this.volumes = volumes;
+            this.images = images;
+            this.bytes = bytes;
+            this.lastModified = lastModified;
+            this.folderModified = folderModified;
+            this.scanned = scanned;
+            this.volumeSizes = Collections.unmodifiableMap(volumeSizes);
+        }
+
+        boolean matches(String filter) {
+            return filter == null || filter.isEmpty() || id.toLowerCase(Locale.ROOT).contains(filter.toLowerCase(Locale.ROOT));
+        }
+    }
+}
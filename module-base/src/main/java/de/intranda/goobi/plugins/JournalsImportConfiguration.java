@@ -0,0 +1,239 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.configuration.HierarchicalConfiguration;
+import org.apache.commons.configuration.SubnodeConfiguration;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.configuration.reloading.FileChangedReloadingStrategy;
+import org.apache.commons.configuration.tree.xpath.XPathExpressionEngine;
+
+import de.sub.goobi.config.ConfigPlugins;
+import de.sub.goobi.config.ConfigurationHelper;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Immutable snapshot of the plugin configuration for a workflow template. The snapshots are cached and only read again, when the configuration
+ * file was changed.
+ */
+@Log4j2
+public class JournalsImportConfiguration {
+
+    private static final Map<String, JournalsImportConfiguration> CACHE = new ConcurrentHashMap<>();
+
+    // modification date of the configuration file, when the snapshot was created
+    private final long lastModified;
+
+    @Getter
+    private final boolean runAsGoobiScript;
+    // only write the import plan, don't create any process
+    @Getter
+    private final boolean dryRun;
+    @Getter
+    private final String collection;
+    @Getter
+    private final String basedir;
+    @Getter
+    private final String catalogueName;
+    @Getter
+    private final String imageImportStrategy;
+    // write the pages directly into the METS file, without creating them in memory
+    @Getter
+    private final boolean streamingMetsWriter;
+    @Getter
+    private final int catalogueCacheSize;
+    // lifetime of cached catalogue records in milliseconds
+    @Getter
+    private final long catalogueCacheTtl;
+    @Getter
+    private final int catalogueConcurrency;
+    // maximum catalogue requests per second, 0 for no limit
+    @Getter
+    private final double catalogueRateLimit;
+    @Getter
+    private final int catalogueRetries;
+    // delay before the first repetition of a failed catalogue request in milliseconds
+    @Getter
+    private final long catalogueRetryDelay;
+    // adapt the number of parallel catalogue requests between 1 and catalogueMaxConcurrency to the response times
+    @Getter
+    private final boolean adaptiveCatalogueConcurrency;
+    @Getter
+    private final int catalogueMaxConcurrency;
+    // response time in milliseconds, from which on the number of parallel requests is reduced
+    @Getter
+    private final long catalogueSlowResponse;
+    @Getter
+    private final int parallelism;
+    // threads of the stages of the import pipeline
+    @Getter
+    private final int catalogueThreads;
+    @Getter
+    private final int buildThreads;
+    @Getter
+    private final int metsThreads;
+    @Getter
+    private final int cleanupThreads;
+    // maximum number of waiting volumes per stage
+    @Getter
+    private final int stageQueueSize;
+    // seconds between two log entries with the state of the pipeline
+    @Getter
+    private final long pipelineLogInterval;
+    // run the tasks of the stages in virtual threads, if the runtime supports them
+    @Getter
+    private final boolean virtualThreads;
+    // maximum number of parallel accesses to the import folder and to the Goobi folders
+    @Getter
+    private final int sourceConcurrency;
+    @Getter
+    private final int targetConcurrency;
+    // split the import between several Goobi nodes
+    @Getter
+    private final int shardCount;
+    @Getter
+    private final int shardIndex;
+    @Getter
+    private final String shardStrategy;
+    @Getter
+    private final int transferThreads;
+    @Getter
+    private final int transferQueueSize;
+    // limits of all image transfers in bytes and files per second, 0 for no limit
+    @Getter
+    private final double transferBytesPerSecond;
+    @Getter
+    private final double transferFilesPerSecond;
+    // other transfer limits for times of the day
+    @Getter
+    private final List<TransferThrottle.Window> transferWindows;
+    // store checksums of the images, skip unchanged images and verify moved images
+    @Getter
+    private final boolean verifyChecksums;
+    // import only new and changed volume folders
+    @Getter
+    private final boolean incrementalImport;
+    // store the listing of the journal folders in the import folder
+    @Getter
+    private final boolean journalListingIndex;
+    // milliseconds, within which the stored listing is used without checking the folders
+    @Getter
+    private final long journalListingMaxAge;
+    // milliseconds, after which a journal of the listing is scanned again, even if its folder was not changed
+    @Getter
+    private final long journalRescanInterval;
+    // local PICA XML dump, used instead of the catalogue
+    @Getter
+    private final String catalogueDump;
+
+    private JournalsImportConfiguration(SubnodeConfiguration myconfig, long lastModified) {
+        this.lastModified = lastModified;
+        runAsGoobiScript = myconfig.getBoolean("/runAsGoobiScript", false);
+        dryRun = myconfig.getBoolean("/dryRun", false);
+        collection = myconfig.getString("/collection", "");
+        basedir = myconfig.getString("/importFolder", "");
+        catalogueName = myconfig.getString("/catalogueName", "");
+        imageImportStrategy = myconfig.getString("/imageImportStrategy", "copy");
+        streamingMetsWriter = myconfig.getBoolean("/streamingMetsWriter", false);
+        catalogueCacheSize = myconfig.getInt("/catalogueCacheSize", 100);
+        catalogueCacheTtl = myconfig.getLong("/catalogueCacheTtl", 3600) * 1000;
+        catalogueConcurrency = Math.max(1, myconfig.getInt("/catalogueConcurrency", 4));
+        catalogueRateLimit = myconfig.getDouble("/catalogueRateLimit", 0);
+        catalogueRetries = Math.max(0, myconfig.getInt("/catalogueRetries", 2));
+        catalogueRetryDelay = myconfig.getLong("/catalogueRetryDelay", 1000);
+        adaptiveCatalogueConcurrency = myconfig.getBoolean("/adaptiveCatalogueConcurrency", false);
+        catalogueMaxConcurrency = Math.max(catalogueConcurrency, myconfig.getInt("/catalogueMaxConcurrency", catalogueConcurrency * 4));
+        catalogueSlowResponse = myconfig.getLong("/catalogueSlowResponse", 5000);
+        parallelism = Math.max(1, myconfig.getInt("/parallelism", 1));
+        catalogueThreads = Math.max(1,
+                myconfig.getInt("/catalogueThreads", adaptiveCatalogueConcurrency ? catalogueMaxConcurrency : catalogueConcurrency));
+        buildThreads = Math.max(1, myconfig.getInt("/buildThreads", parallelism));
+        metsThreads = Math.max(1, myconfig.getInt("/metsThreads", parallelism));
+        cleanupThreads = Math.max(1, myconfig.getInt("/cleanupThreads", 1));
+        stageQueueSize = Math.max(1, myconfig.getInt("/stageQueueSize", 10));
+        pipelineLogInterval = myconfig.getLong("/pipelineLogInterval", 60);
+        virtualThreads = myconfig.getBoolean("/virtualThreads", false);
+        shardCount = Math.max(1, myconfig.getInt("/shardCount", 1));
+        shardIndex = myconfig.getInt("/shardIndex", 0);
+        shardStrategy = myconfig.getString("/shardStrategy", ImportShard.STRATEGY_HASH);
+        transferThreads = Math.max(1, myconfig.getInt("/transferThreads", 2));
+        transferQueueSize = Math.max(1, myconfig.getInt("/transferQueueSize", 1000));
+        transferBytesPerSecond = myconfig.getDouble("/transferBandwidth", 0) * 1000000;
+        transferFilesPerSecond = myconfig.getDouble("/transferFilesPerSecond", 0);
+        transferWindows = readTransferWindows(myconfig);
+        sourceConcurrency = myconfig.getInt("/sourceConcurrency", transferThreads + cleanupThreads);
+        targetConcurrency = myconfig.getInt("/targetConcurrency", transferThreads + metsThreads);
+        verifyChecksums = myconfig.getBoolean("/verifyChecksums", false);
+        incrementalImport = myconfig.getBoolean("/incrementalImport", false);
+        journalListingIndex = myconfig.getBoolean("/journalListingIndex", false);
+        journalListingMaxAge = myconfig.getLong("/journalListingMaxAge", 60) * 1000;
+        journalRescanInterval = myconfig.getLong("/journalRescanInterval", 86400) * 1000;
+        catalogueDump = myconfig.getString("/catalogueDump", "");
+    }
+
+    private static List<TransferThrottle.Window> readTransferWindows(SubnodeConfiguration myconfig) {
+        List<TransferThrottle.Window> windows = new ArrayList<>();
+        for (HierarchicalConfiguration window : myconfig.configurationsAt("/transferWindow")) {
+            try {
+                windows.add(new TransferThrottle.Window(LocalTime.parse(window.getString("@start")), LocalTime.parse(window.getString("@end")),
+                        window.getDouble("@bandwidth", 0) * 1000000, window.getDouble("@filesPerSecond", 0)));
+            } catch (DateTimeParseException | NullPointerException e) {
+                log.error("Ignoring transfer window without valid start and end time: {}", e.getMessage());
+            }
+        }
+        return Collections.unmodifiableList(windows);
+    }
+
+    /**
+     * Get the configuration for the given workflow template
+     *
+     * @param pluginTitle name of the plugin
+     * @param workflowTitle name of the workflow template
+     * @return the cached configuration, or a new one if the configuration file was changed in the meantime
+     */
+    public static JournalsImportConfiguration getInstance(String pluginTitle, String workflowTitle) {
+        long lastModified = getLastModified(pluginTitle);
+        String key = pluginTitle + "|" + workflowTitle;
+        JournalsImportConfiguration config = CACHE.get(key);
+        if (config == null || config.lastModified != lastModified) {
+            config = new JournalsImportConfiguration(readConfig(pluginTitle, workflowTitle), lastModified);
+            CACHE.put(key, config);
+        }
+        return config;
+    }
+
+    private static SubnodeConfiguration readConfig(String pluginTitle, String workflowTitle) {
+        XMLConfiguration xmlConfig = ConfigPlugins.getPluginConfig(pluginTitle);
+        xmlConfig.setExpressionEngine(new XPathExpressionEngine());
+        xmlConfig.setReloadingStrategy(new FileChangedReloadingStrategy());
+
+        SubnodeConfiguration myconfig = null;
+        try {
+            myconfig = xmlConfig.configurationAt("//config[./template = '" + workflowTitle + "']");
+        } catch (IllegalArgumentException e) {
+            myconfig = xmlConfig.configurationAt("//config[./template = '*']");
+        }
+        return myconfig;
+    }
+
+    private static long getLastModified(String pluginTitle) {
+        Path configFile = Paths.get(ConfigurationHelper.getInstance().getConfigurationFolder(), "plugin_" + pluginTitle + ".xml");
+        try {
+            return Files.getLastModifiedTime(configFile).toMillis();
+        } catch (IOException e) {
+            // file does not exist, keep the cached configuration
+            return -1;
+        }
+    }
+}
@@ -5,13 +5,17 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
-import org.apache.commons.configuration.SubnodeConfiguration;
-import org.apache.commons.configuration.XMLConfiguration;
-import org.apache.commons.configuration.reloading.FileChangedReloadingStrategy;
-import org.apache.commons.configuration.tree.xpath.XPathExpressionEngine;
 import org.apache.commons.lang.StringUtils;
 import org.goobi.production.enums.ImportReturnValue;
 import org.goobi.production.enums.ImportType;
@@ -20,26 +24,26 @@ import org.goobi.production.importer.DocstructElement;
 import org.goobi.production.importer.ImportObject;
 import org.goobi.production.importer.Record;
 import org.goobi.production.plugin.interfaces.IImportPluginVersion2;
-import org.goobi.production.plugin.interfaces.IOpacPlugin;
 import org.goobi.production.properties.ImportProperty;
 
-import de.sub.goobi.config.ConfigPlugins;
+import de.intranda.goobi.plugins.ImportMetrics.Counter;
+import de.intranda.goobi.plugins.ImportMetrics.Phase;
+import de.intranda.goobi.plugins.JournalFolderScanner.IssueFolder;
+import de.intranda.goobi.plugins.JournalFolderScanner.JournalFolder;
+import de.intranda.goobi.plugins.JournalFolderScanner.VolumeFolder;
+import de.intranda.goobi.plugins.JournalListingIndex.JournalEntry;
+import de.intranda.goobi.plugins.ResourceLimits.Resource;
+import de.intranda.goobi.plugins.VolumeIndex.Fingerprint;
 import de.sub.goobi.config.ConfigurationHelper;
 import de.sub.goobi.forms.MassImportForm;
 import de.sub.goobi.helper.StorageProvider;
 import de.sub.goobi.helper.exceptions.ImportPluginException;
-import de.unigoettingen.sub.search.opac.ConfigOpac;
-import de.unigoettingen.sub.search.opac.ConfigOpacCatalogue;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
 import net.xeoh.plugins.base.annotations.PluginImplementation;
 import ugh.dl.DigitalDocument;
-import ugh.dl.DocStruct;
-import ugh.dl.DocStructType;
 import ugh.dl.Fileformat;
-import ugh.dl.Metadata;
-import ugh.dl.MetadataType;
 import ugh.dl.Prefs;
 import ugh.exceptions.UGHException;
 import ugh.fileformats.mets.MetsMods;
@@ -95,11 +99,53 @@ public class JournalsImportPlugin implements IImportPluginVersion2 {
     @Setter
     private String workflowTitle;
 
-    private boolean runAsGoobiScript = false;
+    // configuration for the current workflow template
+    private JournalsImportConfiguration config;
 
-    private String imageImportStrategy;
+    // catalogue responses of the current import run
+    @Getter
+    private CatalogueCache catalogueCache;
+
+    // catalogue or catalogue dump of the current import run
+    private CatalogueSource catalogueSource;
+
+    // journal records requested before the volumes are processed
+    private CataloguePrefetcher prefetcher;
+
+    // background transfer of the images of the current import run
+    private ImageTransfer imageTransfer;
+
+    // checksums and copies of the images of all runs
+    private ChecksumStore checksumStore;
+
+    // stages of the current import run
+    private ImportPipeline pipeline;
+
+    // parallel accesses to the catalogue and the file systems
+    private ResourceLimits limits = ResourceLimits.UNLIMITED;
+
+    // adaptive limit of the catalogue requests of the current import run, replaces the fixed limit
+    @Getter
+    private AdaptiveConcurrencyLimit catalogueLimit;
+
+    // ruleset types, resolved once per ruleset
+    private RulesetTypes types;
 
-    private String collection;
+    private VolumeStructureBuilder structureBuilder;
+
+    // receives the timings and counters of each run
+    @Setter
+    private ImportMetrics metrics = ImportMetrics.NOOP;
+
+    // timings and counters of the current import run
+    @Getter
+    private ImportRunStatistics statistics;
+
+    // reached import state of each volume, used to continue interrupted runs
+    private ImportProgressJournal progressJournal;
+
+    // imported volume folders, used to skip unchanged volumes
+    private VolumeIndex volumeIndex;
 
     /**
      * define what kind of import plugin this is
@@ -110,27 +156,12 @@ public class JournalsImportPlugin implements IImportPluginVersion2 {
     }
 
     /**
-     * read the configuration file
+     * read the configuration file, the file is only parsed again if it was changed
      */
     private void readConfig() {
-        XMLConfiguration xmlConfig = ConfigPlugins.getPluginConfig(title);
-        xmlConfig.setExpressionEngine(new XPathExpressionEngine());
-        xmlConfig.setReloadingStrategy(new FileChangedReloadingStrategy());
-
-        SubnodeConfiguration myconfig = null;
-        try {
-            myconfig = xmlConfig.configurationAt("//config[./template = '" + workflowTitle + "']");
-        } catch (IllegalArgumentException e) {
-            myconfig = xmlConfig.configurationAt("//config[./template = '*']");
-        }
-
-        if (myconfig != null) {
-            runAsGoobiScript = myconfig.getBoolean("/runAsGoobiScript", false);
-            collection = myconfig.getString("/collection", "");
-            basedir = myconfig.getString("/importFolder", "");
-            catalogueName = myconfig.getString("/catalogueName", "");
-            imageImportStrategy = myconfig.getString("/imageImportStrategy", "copy");
-        }
+        config = JournalsImportConfiguration.getInstance(title, workflowTitle);
+        basedir = config.getBasedir();
+        catalogueName = config.getCatalogueName();
     }
 
     /**
@@ -146,298 +177,840 @@ public class JournalsImportPlugin implements IImportPluginVersion2 {
      */
     @Override
     public List<ImportObject> generateFiles(List<Record> records) {
+        List<ImportObject> answer = new ArrayList<>();
+        generateFiles(records, answer::add);
+        return answer;
+    }
+
+    /**
+     * Create the Goobi processes like {@link #generateFiles(List)}, but hand over each volume as soon as it is finished. Only a limited number of
+     * volumes is processed at the same time, the memory of a volume is released after it was handed over. The volumes are handed over in the
+     * same order as they are returned by {@link #generateFiles(List)}.
+     *
+     * @param records selected journals
+     * @param consumer receives the import result of each volume
+     */
+    public void generateFiles(List<Record> records, Consumer<ImportObject> consumer) {
         if (StringUtils.isBlank(workflowTitle)) {
             workflowTitle = form.getTemplate().getTitel();
         }
         readConfig();
 
-        // some general preparations
-        DocStructType issueType = prefs.getDocStrctTypeByName("PeriodicalIssue");
-        DocStructType pageType = prefs.getDocStrctTypeByName("page");
+        if (config.isDryRun()) {
+            List<String> journalIds = new ArrayList<>();
+            for (Record record : records) {
+                journalIds.add(record.getId());
+            }
+            writeImportPlan(createImportPlan(journalIds));
+            return;
+        }
 
-        // log + phys page no
-        MetadataType physPageNumberType = prefs.getMetadataTypeByName("physPageNumber");
-        MetadataType logicalPageNumberType = prefs.getMetadataTypeByName("logicalPageNumber");
+        // some general preparations, the ruleset is only read from now on and can be shared between the volumes
+        types = RulesetTypes.getInstance(prefs);
+        structureBuilder = new VolumeStructureBuilder(types);
 
-        MetadataType pulicationYearType = prefs.getMetadataTypeByName("PublicationYear");
-        MetadataType currentNoType = prefs.getMetadataTypeByName("CurrentNo");
-        MetadataType currentNoSortType = prefs.getMetadataTypeByName("CurrentNoSorting");
-        MetadataType titleType = prefs.getMetadataTypeByName("TitleDocMain");
+        statistics = new ImportRunStatistics(metrics);
 
-        //        MetadataType catalogIdSourceType = prefs.getMetadataTypeByName("CatalogIDSource");
-        MetadataType collectionType = prefs.getMetadataTypeByName("singleDigCollection");
+        // without the catalogue no volume can be imported
+        try {
+            catalogueSource = openCatalogue();
+        } catch (ImportPluginException e) {
+            log.error(e.getMessage());
+            for (Record record : records) {
+                ImportObject io = new ImportObject();
+                io.setErrorMessage(e.getMessage());
+                io.setImportReturnValue(ImportReturnValue.InvalidData);
+                io.setProcessTitle(record.getId());
+                consumer.accept(io);
+            }
+            return;
+        }
 
-        MetadataType catalogIdDigitalType = prefs.getMetadataTypeByName("CatalogIDDigital");
+        // the catalogue and the fields of the run are released, whatever happens during the import
+        try {
+            importVolumes(records, consumer);
+        } finally {
+            if (catalogueCache != null) {
+                log.info("Catalogue cache: {} hits, {} misses", catalogueCache.getHits(), catalogueCache.getMisses());
+                catalogueCache.clear();
+            }
+            prefetcher = null;
+            closeCatalogue();
+            pipeline = null;
+            limits = ResourceLimits.UNLIMITED;
+            catalogueLimit = null;
+            log.info(statistics.getSummary());
+        }
+    }
 
-        List<ImportObject> answer = new ArrayList<>();
+    /**
+     * Import the volumes of the selected journals with the opened catalogue
+     */
+    private void importVolumes(List<Record> records, Consumer<ImportObject> consumer) {
+        // each journal is requested only once from the catalogue, all volumes get a copy of the cached record
+        catalogueCache = new CatalogueCache(config.getCatalogueCacheSize(), config.getCatalogueCacheTtl());
+        if (config.isAdaptiveCatalogueConcurrency()) {
+            catalogueLimit = new AdaptiveConcurrencyLimit(config.getCatalogueConcurrency(), config.getCatalogueMaxConcurrency(),
+                    config.getCatalogueSlowResponse(), config.getCatalogueRetries(), config.getCatalogueRetryDelay());
+            limits = new ResourceLimits(0, config.getSourceConcurrency(), config.getTargetConcurrency());
+        } else {
+            limits = new ResourceLimits(config.getCatalogueConcurrency(), config.getSourceConcurrency(), config.getTargetConcurrency());
+        }
+
+        // part of the import folder, this node imports
+        ImportShard shard = createShard();
 
-        // run through all records and create a Goobi process for each of it
-        for (Record record : records) {
+        try {
+            progressJournal = new ImportProgressJournal(Paths.get(importFolder, getShardFilename(ImportProgressJournal.FILENAME, shard)));
+            if (config.isIncrementalImport()) {
+                volumeIndex = new VolumeIndex(Paths.get(importFolder, getShardFilename(VolumeIndex.FILENAME, shard)));
+            }
+        } catch (IOException e) {
+            log.error("Cannot open the import progress in {}", importFolder, e);
+            if (progressJournal != null) {
+                progressJournal.close();
+            }
+            return;
+        }
 
-            String folderName = record.getId();
-            List<String> subFolder = new ArrayList<>();
+        boolean virtualThreads = config.isVirtualThreads();
+        if (virtualThreads && !VirtualThreads.isSupported()) {
+            log.warn("Virtual threads are not supported by this Java runtime, use platform threads");
+            virtualThreads = false;
+        }
+        imageTransfer = new ImageTransfer(config.getImageImportStrategy(),
+                new PipelineStage("transfer", config.getTransferThreads(), config.getTransferQueueSize(), virtualThreads));
+        imageTransfer.setMetrics(statistics);
+        imageTransfer.setLimits(limits);
+        imageTransfer.setThrottle(new TransferThrottle(config.getTransferBytesPerSecond(), config.getTransferFilesPerSecond(),
+                config.getTransferWindows()));
+        checksumStore = null;
+        if (config.isVerifyChecksums()) {
             try {
-                Files.find(Paths.get(basedir, folderName), 1,
-                        (p, file) -> file.isDirectory() && p.getFileName().toString().matches("\\d+X?_\\d{4}")
-                        || p.getFileName().toString().matches("\\d{4}") || p.getFileName().toString().matches("\\d+X?_\\d{4}_\\d+")
-                        || p.getFileName().toString().matches("\\d{4}_\\d+"))
-                .forEach(p -> subFolder.add(p.getFileName().toString()));
+                checksumStore = new ChecksumStore(Paths.get(getGoobiImportFolder(), ChecksumStore.FOLDER));
+                imageTransfer.setChecksumStore(checksumStore);
             } catch (IOException e) {
-                log.error(e);
+                // the checksums are calculated again for each transfer
+                log.error("Cannot read the checksum store", e);
             }
-
-            for (String volumeFolder : subFolder) {
-
-                // check, if volumeFolder contains images or sub folder
-                List<Path> images = new ArrayList<>();
-
-                Path currentFolder = Paths.get(basedir, folderName, volumeFolder);
-
-                try {
-                    Files.find(currentFolder, 2, (p, file) -> file.isRegularFile()).forEach(p -> images.add(p));
-                } catch (IOException e) {
-                    log.error(e);
+        }
+        // the volumes are independent from each other, process them in stages but keep the order of the results
+        pipeline = new ImportPipeline(config.getCatalogueThreads(), config.getBuildThreads(), config.getMetsThreads(), config.getCleanupThreads(),
+                config.getStageQueueSize(), virtualThreads, imageTransfer.getStage());
+        pipeline.setCatalogueLimit(catalogueLimit);
+        pipeline.startStatusLog(config.getPipelineLogInterval());
+        // volumes in progress, the oldest one first
+        Deque<PendingVolume> pendingVolumes = new ArrayDeque<>();
+        int maxPendingVolumes = pipeline.getCapacity();
+        // the progress is only kept for the next run, if this run did not finish
+        boolean completed = false;
+        try {
+            // walk through the selected journal folders only once
+            List<String> journalIds = new ArrayList<>();
+            for (Record record : records) {
+                journalIds.add(record.getId());
+            }
+            // request all journals at once, so the catalogue requests overlap
+            long start = System.nanoTime();
+            if (catalogueLimit != null) {
+                // the adaptive limit decides about the parallel requests and repeats failed requests
+                prefetcher = new CataloguePrefetcher(config.getCatalogueMaxConcurrency(), config.getCatalogueRateLimit(), 0, 0);
+            } else {
+                prefetcher = new CataloguePrefetcher(config.getCatalogueConcurrency(), config.getCatalogueRateLimit(),
+                        config.getCatalogueRetries(), config.getCatalogueRetryDelay());
+            }
+            prefetcher.prefetch(journalIds, this::requestCatalogue);
+            statistics.recordTime(Phase.PREFETCH, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            // with the distribution by size the volumes keep their shard from the assignment file, new volumes are added to it
+            Map<String, JournalFolder> journals = new JournalFolderScanner().scan(Paths.get(basedir), journalIds);
+            Set<String> shardVolumes = null;
+            if (shard.isEnabled()) {
+                shardVolumes = shard.getVolumes(journals);
+            }
+            statistics.recordTime(Phase.SCAN, System.nanoTime() - start);
+
+            // run through all records and create a Goobi process for each of it
+            for (Record record : records) {
+                JournalFolder journal = journals.get(record.getId());
+                List<VolumeFolder> volumes = new ArrayList<>();
+                if (journal != null) {
+                    volumes.addAll(journal.getVolumes().values());
                 }
-                if (images.isEmpty()) {
-                    // nothing to import, skip folder
-                    continue;
+                for (String name : progressJournal.getUnfinishedVolumes(record.getId(), isMoveStrategy())) {
+                    if (journal == null || !journal.getVolumes().containsKey(name)) {
+                        // the images were already moved and the folder was removed, finish the volume with the existing metadata file
+                        volumes.add(new VolumeFolder(name, Paths.get(basedir, record.getId(), name)));
+                    }
                 }
-
-                Fileformat fileformat = getRecordFromCatalogue(record.getId());
-                ImportObject io = new ImportObject();
-                answer.add(io);
-                if (fileformat == null) {
-                    // set current import to error and continue with next one
-                    io.setErrorMessage("Cannot get opac data for '" + volumeFolder + "'");
-                    io.setImportReturnValue(ImportReturnValue.InvalidData);
-                    io.setProcessTitle(volumeFolder);
+                if (volumes.isEmpty() && journal == null) {
+                    log.error("Journal folder {} does not exist in {}", record.getId(), basedir);
                     continue;
                 }
-                try {
-                    DigitalDocument digDoc = fileformat.getDigitalDocument();
-                    DocStruct anchor = digDoc.getLogicalDocStruct();
-                    DocStruct volume = anchor.getAllChildren().get(0);
-                    DocStruct physical = digDoc.getPhysicalDocStruct();
-                    String datePart = null;
-                    if (volumeFolder.startsWith(record.getId())) {
-                        datePart = volumeFolder.replace(record.getId(), "").replaceFirst("_", "");
-                    } else {
-                        datePart = volumeFolder;
+                for (VolumeFolder volumeFolder : volumes) {
+                    String claim = null;
+                    if (shard.isEnabled()) {
+                        if (!isClaimed(shard, shardVolumes, journal, record.getId(), volumeFolder.getName())) {
+                            continue;
+                        }
+                        claim = VolumeName.parse(record.getId(), volumeFolder.getName()).getProcessTitle();
                     }
-                    String issueNumber = null;
-                    String year = null;
-                    if (datePart.contains("_")) {
-                        year = datePart.split("_")[0];
-                        issueNumber = datePart.split("_")[1];
-                    } else {
-                        year = datePart;
+                    pendingVolumes.add(new PendingVolume(volumeFolder, processVolume(record, volumeFolder), claim));
+                    // wait for the oldest volume, before too many volumes are in progress
+                    if (pendingVolumes.size() >= maxPendingVolumes) {
+                        handOver(pendingVolumes.poll(), shard, consumer);
                     }
+                }
+            }
 
-                    Metadata imagePath = new Metadata(prefs.getMetadataTypeByName("pathimagefiles"));
-                    imagePath.setValue("./images/");
-                    physical.addMetadata(imagePath);
+            // now add the remaining processes to the list
+            while (!pendingVolumes.isEmpty()) {
+                handOver(pendingVolumes.poll(), shard, consumer);
+            }
+            completed = true;
+        } catch (InterruptedException e) {
+            log.error(e);
+            Thread.currentThread().interrupt();
+        } finally {
+            pipeline.close();
+            imageTransfer.close();
+            closeProgressJournal(completed);
+            saveVolumeIndex();
+        }
+    }
 
-                    // check if anchor id is missing
-                    List<? extends Metadata> anchorIds = anchor.getAllMetadataByType(catalogIdDigitalType);
-                    if (anchorIds.isEmpty()) {
-                        Metadata anchorIdentifier = new Metadata(catalogIdDigitalType);
-                        anchorIdentifier.setValue(folderName);
-                        anchor.addMetadata(anchorIdentifier);
-                    }
+    private ImportShard createShard() {
+        // all shards of the import root folder share the distribution by size
+        Path assignmentFile = Paths.get(getGoobiImportFolder(), ImportShard.LOCK_FOLDER, getRootFilename(ImportShard.ASSIGNMENT_FILENAME));
+        return new ImportShard(config.getShardIndex(), config.getShardCount(), config.getShardStrategy(), assignmentFile);
+    }
 
-                    // add PublicationYear, CurrentNo and CurrentNoSorting to volume
-                    Metadata publicationYear = new Metadata(pulicationYearType);
-                    publicationYear.setValue(year);
-                    volume.addMetadata(publicationYear);
-                    String order = null;
-                    if (StringUtils.isNotBlank(issueNumber)) {
-                        order = year + issueNumber;
-                    } else {
-                        order = year;
-                    }
-                    Metadata currentNo = new Metadata(currentNoType);
-                    currentNo.setValue(order);
-                    volume.addMetadata(currentNo);
-
-                    Metadata currentNoSort = new Metadata(currentNoSortType);
-                    currentNoSort.setValue(order);
-                    volume.addMetadata(currentNoSort);
-
-                    Metadata volumeIdentifier = new Metadata(catalogIdDigitalType);
-                    volumeIdentifier.setValue(folderName + "_" + datePart);
-                    volume.addMetadata(volumeIdentifier);
-
-                    int physicalOrderNumber = 1;
-                    for (Path image : images) {
-                        if (!image.getFileName().toString().toLowerCase().endsWith("pdf")) {
-
-                            // create image element
-                            DocStruct dsPage = digDoc.createDocStruct(pageType);
-                            Metadata physNo = new Metadata(physPageNumberType);
-                            physNo.setValue(String.valueOf(physicalOrderNumber));
-                            physicalOrderNumber++;
-                            dsPage.addMetadata(physNo);
-
-                            dsPage.setImageName(image.getFileName().toString());
-
-                            Metadata logicalPageNumber = new Metadata(logicalPageNumberType);
-                            logicalPageNumber.setValue("uncounted");
-                            dsPage.addMetadata(logicalPageNumber);
-
-                            // add image to the volume
-                            physical.addChild(dsPage);
-
-                            // check if image is in a sub folder
-                            String parentFolder = image.getParent().getFileName().toString();
-                            if (!parentFolder.equals(volumeFolder)) {
-                                // image belongs to an issue
-                                // check if issue exists
-                                DocStruct currentIssue = null;
-                                if (volume.getAllChildren() != null) {
-                                    for (DocStruct issue : volume.getAllChildren()) {
-                                        // get issue title, compare it with folder name
-                                        for (Metadata md : issue.getAllMetadata()) {
-                                            if (md.getType().getName().equals(titleType.getName())) {
-                                                if (md.getValue().equals(parentFolder)) {
-                                                    currentIssue = issue;
-                                                }
-                                            }
-                                        }
-                                    }
-                                }
-                                // or create it
-                                if (currentIssue == null) {
-                                    currentIssue = digDoc.createDocStruct(issueType);
-                                    volume.addChild(currentIssue);
-                                    Metadata title = new Metadata(titleType);
-                                    title.setValue(parentFolder);
-                                    currentIssue.addMetadata(title);
-                                }
-                                dsPage.setImageName(parentFolder.replaceAll("\\W", "") + "_" + image.getFileName().toString());
-                                // add image to issue and volume
-                                currentIssue.addReferenceTo(dsPage, "logical_physical");
-                            }
-
-                            volume.addReferenceTo(dsPage, "logical_physical");
-                        }
-                    }
+    private String getGoobiImportFolder() {
+        return StringUtils.isBlank(importFolder) ? ConfigurationHelper.getInstance().getTemporaryFolder() : importFolder;
+    }
 
-                    if (record.getCollections() != null && !record.getCollections().isEmpty()) {
-                        // use selected collection
-                        for (String col : record.getCollections()) {
-                            if (StringUtils.isNotBlank(col)) {
-                                Metadata md = new Metadata(collectionType);
-                                md.setValue(col);
-                                anchor.addMetadata(md);
-                                md = new Metadata(collectionType);
-                                md.setValue(col);
-                                volume.addMetadata(md);
-                            }
-                        }
-                    } else if (StringUtils.isNotBlank(collection)) {
-                        // use configured collection
-                        Metadata md = new Metadata(collectionType);
-                        md.setValue(collection);
-                        anchor.addMetadata(md);
-                        md = new Metadata(collectionType);
-                        md.setValue(collection);
-                        volume.addMetadata(md);
-                    }
+    /**
+     * Each import root folder gets its own files, the root folders may share the Goobi import folder
+     */
+    private String getRootFilename(String filename) {
+        int extension = filename.lastIndexOf('.');
+        String suffix = "_" + Integer.toHexString(Paths.get(basedir).toAbsolutePath().normalize().toString().hashCode());
+        return filename.substring(0, extension) + suffix + filename.substring(extension);
+    }
+
+    /**
+     * Each import root folder and each shard gets its own progress and index file, they may share the Goobi import folder
+     */
+    private String getShardFilename(String filename, ImportShard shard) {
+        String rootFilename = getRootFilename(filename);
+        if (shard.isEnabled()) {
+            int extension = rootFilename.lastIndexOf('.');
+            return rootFilename.substring(0, extension) + "_" + shard.getIndex() + rootFilename.substring(extension);
+        }
+        return rootFilename;
+    }
+
+    private void closeProgressJournal(boolean completed) {
+        if (!completed) {
+            progressJournal.close();
+            return;
+        }
+        try {
+            progressJournal.removeFinished(isMoveStrategy());
+        } catch (IOException e) {
+            log.error("Cannot remove the finished volumes from the import progress", e);
+        }
+    }
+
+    private void saveVolumeIndex() {
+        if (volumeIndex == null) {
+            return;
+        }
+        log.info("{} volume folders were not changed since their import", statistics.getCount(Counter.VOLUMES_UNCHANGED));
+        try {
+            volumeIndex.save();
+        } catch (IOException e) {
+            log.error("Cannot write the volume index {}", volumeIndex.getFile(), e);
+        }
+        volumeIndex = null;
+    }
+
+    /**
+     * Check if the volume belongs to the shard of this node and claim it, so no other node imports it
+     */
+    private boolean isClaimed(ImportShard shard, Set<String> shardVolumes, JournalFolder journal, String journalId, String volumeFolder) {
+        boolean scanned = journal != null && journal.getVolumes().containsKey(volumeFolder);
+        // volumes, which are not scanned anymore, are unfinished volumes of this node
+        if (scanned && !shardVolumes.contains(ImportProgressJournal.getKey(journalId, volumeFolder))) {
+            return false;
+        }
+        String processTitle = VolumeName.parse(journalId, volumeFolder).getProcessTitle();
+        if (!shard.claim(Paths.get(importFolder), processTitle)) {
+            log.info("Volume {} is imported by another node", processTitle);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Plan the import of the given journals from the folder structure, without any catalogue request
+     *
+     * @param journalIds journal folders to plan, all journals if the list is empty
+     * @return the processes, that would be created
+     */
+    public ImportPlan createImportPlan(List<String> journalIds) {
+        if (config == null) {
+            readConfig();
+        }
+        JournalFolderScanner scanner = new JournalFolderScanner();
+        if (journalIds == null || journalIds.isEmpty()) {
+            return ImportPlan.create(scanner.scan(Paths.get(basedir)));
+        }
+        return ImportPlan.create(scanner.scan(Paths.get(basedir), journalIds));
+    }
+
+    private void writeImportPlan(ImportPlan plan) {
+        try {
+            plan.write(Paths.get(importFolder, "import_plan.json"));
+            plan.write(Paths.get(importFolder, "import_plan.csv"));
+            log.info("Import plan: {} processes, {} empty folders, {} pages, {} bytes", plan.getProcessCount(), plan.getEmptyFolderCount(),
+                    plan.getPageCount(), plan.getSize());
+        } catch (IOException e) {
+            log.error(e);
+        }
+    }
+
+    /**
+     * Wait until the volume is finished, then hand it over and release its memory and its claim
+     */
+    private void handOver(PendingVolume pendingVolume, ImportShard shard, Consumer<ImportObject> consumer) throws InterruptedException {
+        VolumeFolder volumeFolder = pendingVolume.getVolumeFolder();
+        ImportObject io = null;
+        try {
+            io = pendingVolume.getResult().get();
+        } catch (ExecutionException e) {
+            log.error(e);
+            io = new ImportObject();
+            io.setErrorMessage("Cannot import '" + volumeFolder.getName() + "': " + e.getCause().getMessage());
+            io.setImportReturnValue(ImportReturnValue.InvalidData);
+            io.setProcessTitle(volumeFolder.getName());
+        }
+        volumeFolder.release();
+        if (pendingVolume.getClaim() != null) {
+            // the volume is finished or failed, a later run may import it again
+            shard.release(Paths.get(importFolder), pendingVolume.getClaim());
+        }
+        if (io != null) {
+            statistics.increment(Counter.VOLUMES, 1);
+            consumer.accept(io);
+        }
+    }
+
+    /**
+     * Import a single volume folder. The catalogue request, the structure, the METS file, the image transfer and the cleanup run in the
+     * stages of the import pipeline, each stage blocks the stage before it as soon as its queue is full. Volumes are processed in parallel, so
+     * only the job of the volume and the read only ruleset types may be used in the stages.
+     *
+     * If the volume was partially imported by an interrupted run, the existing metadata file is used and only the missing steps are done.
+     *
+     * @param record selected journal
+     * @param scannedVolume scanned volume folder
+     * @return the import result, completed as soon as all images are transferred. The result is null, if the folder does not contain any
+     *         images or did not change since its import
+     */
+    private CompletableFuture<ImportObject> processVolume(Record record, VolumeFolder scannedVolume) {
+        VolumeJob job = createJob(record, scannedVolume);
+        if (job == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (job.isFailed()) {
+            return CompletableFuture.completedFuture(job.getImportObject());
+        }
+        return CompletableFuture.supplyAsync(() -> readCatalogue(job), pipeline.getCatalogue())
+                .thenApplyAsync(this::buildStructure, pipeline.getBuild())
+                .thenApplyAsync(this::writeMetsFile, pipeline.getMets())
+                .thenCompose(this::transferImages)
+                .thenApplyAsync(this::finishVolume, pipeline.getCleanup())
+                .thenApply(VolumeJob::getImportObject);
+    }
+
+    /**
+     * Check the import progress of the volume
+     *
+     * @return the job of the volume, a failed job if the volume was finished by an interrupted run, or null, if there is nothing to import
+     */
+    private VolumeJob createJob(Record record, VolumeFolder scannedVolume) {
+        String folderName = record.getId();
+        String volumeFolder = scannedVolume.getName();
+        String progressKey = ImportProgressJournal.getKey(folderName, volumeFolder);
+
+        // state of the folder before the import, the folder is released afterwards
+        Fingerprint fingerprint = Fingerprint.of(scannedVolume);
+        if (volumeIndex != null && volumeIndex.isUnchanged(progressKey, fingerprint)) {
+            log.debug("Volume {} did not change since its import, skip it", progressKey);
+            statistics.increment(Counter.VOLUMES_UNCHANGED, 1);
+            return null;
+        }
+
+        ImportProgressJournal.State state = progressJournal.getState(progressKey);
+        if (progressJournal.isFinished(progressKey, isMoveStrategy())) {
+            if (volumeIndex == null || fingerprint.getFiles() == 0) {
+                // finished by an interrupted run
+                log.info("Volume {} was already imported, skip it", progressKey);
+                VolumeJob job = new VolumeJob(record, scannedVolume, progressKey, fingerprint, state, VolumeName.parse(folderName, volumeFolder), null,
+                        false);
+                job.skip("Volume '" + volumeFolder + "' was already imported by an interrupted run");
+                return job;
+            }
+            if (!volumeIndex.contains(progressKey)) {
+                // imported before the index was used, the current state is the best guess
+                volumeIndex.record(progressKey, fingerprint);
+                statistics.increment(Counter.VOLUMES_UNCHANGED, 1);
+                return null;
+            }
+            log.info("Volume {} was changed after its import, import it again", progressKey);
+            state = null;
+        }
+
+        VolumeName volumeName = VolumeName.parse(folderName, volumeFolder);
+        String metsfilename = Paths.get(importFolder, volumeName.getProcessTitle() + ".xml").toString();
+        boolean resume = state != null && state.compareTo(ImportProgressJournal.State.METS_WRITTEN) >= 0 && Files.exists(Paths.get(metsfilename));
+
+        // check, if volumeFolder contains images or sub folder
+        if (scannedVolume.getImages().isEmpty() && !resume) {
+            // nothing to import, skip folder
+            statistics.increment(Counter.EMPTY_FOLDERS, 1);
+            return null;
+        }
+        if (resume) {
+            log.info("Continue the import of volume {}", progressKey);
+        }
+        return new VolumeJob(record, scannedVolume, progressKey, fingerprint, state, volumeName, metsfilename, resume);
+    }
+
+    /**
+     * Catalogue stage: get the record of the journal
+     */
+    private VolumeJob readCatalogue(VolumeJob job) {
+        if (job.isResume()) {
+            return job;
+        }
+        progressJournal.record(job.getProgressKey(), ImportProgressJournal.State.SCANNED);
+        long start = System.nanoTime();
+        Fileformat fileformat = getRecordFromCatalogue(job.getRecord().getId());
+        statistics.recordTime(Phase.CATALOGUE, System.nanoTime() - start);
+        if (fileformat == null) {
+            statistics.increment(Counter.CATALOGUE_FAILURES, 1);
+            // set current import to error, continue with the next one
+            String volumeFolder = job.getVolumeFolder().getName();
+            job.fail("Cannot get opac data for '" + volumeFolder + "'");
+            job.getImportObject().setProcessTitle(volumeFolder);
+            return job;
+        }
+        job.setFileformat(fileformat);
+        return job;
+    }
+
+    /**
+     * Build stage: add the volume, the issues and the collections to the record. The page elements are created only when the METS file is
+     * written.
+     */
+    private VolumeJob buildStructure(VolumeJob job) {
+        if (job.isResume() || job.isFailed()) {
+            return job;
+        }
+        try {
+            long start = System.nanoTime();
+            PageTable pages = PageTable.create(job.getVolumeFolder());
+            structureBuilder.buildWithoutPages(job.getFileformat().getDigitalDocument(), job.getVolumeName(), pages,
+                    getCollections(job.getRecord()));
+            statistics.recordTime(Phase.STRUCTURE, System.nanoTime() - start);
+            statistics.increment(Counter.ISSUES, pages.getIssueCount());
+            statistics.increment(Counter.PAGES, pages.size());
+            job.setPages(pages);
+        } catch (UGHException e) {
+            log.error(e);
+            job.fail("Cannot add additional metadata to '" + job.getVolumeFolder().getName() + "'");
+        }
+        return job;
+    }
 
-                    // save mets file,
-                    String metsfilename = Paths.get(importFolder, folderName + "_" + datePart + ".xml").toString();
+    /**
+     * METS stage: save the metadata file
+     */
+    private VolumeJob writeMetsFile(VolumeJob job) {
+        if (job.isFailed()) {
+            return job;
+        }
+        if (!job.isResume()) {
+            try {
+                long start = System.nanoTime();
+                DigitalDocument digDoc = job.getFileformat().getDigitalDocument();
+                if (config.isStreamingMetsWriter()) {
+                    limits.call(Resource.TARGET, () -> {
+                        new StreamingMetsWriter(prefs).write(digDoc, job.getPages(), job.getMetsfilename());
+                        return null;
+                    });
+                } else {
+                    structureBuilder.addPages(digDoc, job.getPages());
                     MetsMods mm = new MetsMods(prefs);
                     mm.setDigitalDocument(digDoc);
-                    mm.write(metsfilename);
-                    io.setMetsFilename(metsfilename);
-                    io.setProcessTitle(folderName + "_" + datePart);
-                    io.setImportReturnValue(ImportReturnValue.ExportFinished);
-                    // copy/move images, use new file names
-
-                    if (!"ignore".equalsIgnoreCase(imageImportStrategy)) {
-
-                        String foldername = metsfilename.replace(".xml", "");
-
-                        String folderNameRule = ConfigurationHelper.getInstance().getProcessImagesMasterDirectoryName();
-                        folderNameRule = folderNameRule.replace("{processtitle}", io.getProcessTitle());
-
-                        Path path = Paths.get(foldername, "images", folderNameRule);
-                        try {
-                            Files.createDirectories(path);
-                            for (Path image : images) {
-                                Path destination = null;
-                                String parentFolder = image.getParent().getFileName().toString();
-                                if (!parentFolder.equals(volumeFolder)) {
-                                    destination =
-                                            Paths.get(path.toString(), parentFolder.replaceAll("\\W", "") + "_" + image.getFileName().toString());
-                                } else {
-                                    destination = Paths.get(path.toString(), image.getFileName().toString());
-                                }
-
-                                if ("copy".equalsIgnoreCase(imageImportStrategy)) {
-                                    StorageProvider.getInstance().copyFile(image, destination);
-                                } else if ("move".equalsIgnoreCase(imageImportStrategy)) {
-                                    StorageProvider.getInstance().move(image, destination);
-                                }
-                            }
-                        } catch (IOException e) {
-                            log.error(e);
-                        }
+                    limits.call(Resource.TARGET, () -> mm.write(job.getMetsfilename()));
+                }
+                statistics.recordTime(Phase.METS, System.nanoTime() - start);
+                progressJournal.record(job.getProgressKey(), ImportProgressJournal.State.METS_WRITTEN);
+            } catch (UGHException e) {
+                log.error(e);
+                job.fail("Cannot add additional metadata to '" + job.getVolumeFolder().getName() + "'");
+                return job;
+            }
+            // the record is not needed anymore
+            job.setFileformat(null);
+            job.setPages(null);
+        }
+        ImportObject io = job.getImportObject();
+        io.setMetsFilename(job.getMetsfilename());
+        io.setProcessTitle(job.getVolumeName().getProcessTitle());
+        io.setImportReturnValue(ImportReturnValue.ExportFinished);
+        return job;
+    }
+
+    /**
+     * Transfer stage: copy/move the images in the background, use new file names
+     *
+     * @return finishes, when all images are transferred
+     */
+    private CompletableFuture<VolumeJob> transferImages(VolumeJob job) {
+        if (job.isFailed()) {
+            return CompletableFuture.completedFuture(job);
+        }
+        VolumeFolder scannedVolume = job.getVolumeFolder();
+        String volumeFolder = scannedVolume.getName();
+        List<CompletableFuture<Void>> transfers = new ArrayList<>();
+        if (imageTransfer.isEnabled() && job.getState() != ImportProgressJournal.State.IMAGES_TRANSFERRED) {
+
+            String foldername = job.getMetsfilename().replace(".xml", "");
+
+            String folderNameRule = ConfigurationHelper.getInstance().getProcessImagesMasterDirectoryName();
+            folderNameRule = folderNameRule.replace("{processtitle}", job.getImportObject().getProcessTitle());
+
+            Path path = Paths.get(foldername, "images", folderNameRule);
+            try {
+                Files.createDirectories(path);
+                if (config.isVerifyChecksums()) {
+                    job.setManifest(new ChecksumManifest(path));
+                }
+                for (Path image : scannedVolume.getImages()) {
+                    Path destination = null;
+                    String parentFolder = image.getParent().getFileName().toString();
+                    if (!parentFolder.equals(volumeFolder)) {
+                        IssueFolder issue = scannedVolume.getIssues().get(parentFolder);
+                        String prefix = issue != null ? issue.getImagePrefix() : IssueFolder.createImagePrefix(parentFolder);
+                        destination = Paths.get(path.toString(), prefix + image.getFileName().toString());
+                    } else {
+                        destination = Paths.get(path.toString(), image.getFileName().toString());
                     }
-                    // cleanup
-                    if ("move".equalsIgnoreCase(imageImportStrategy)) {
-                        // remove empty folder if imageImportStrategy was set to move
-                        // check if volumeFolder contains empty sub folder, remove them
-                        List<Path> subdirs = StorageProvider.getInstance().listFiles(currentFolder.toString());
-                        for (Path dir : subdirs) {
-                            try {
-                                Files.delete(dir);
-                            } catch (IOException e) {
-                                // folder cannot be deleted, probably because it is not empty
-                                log.error(e);
-                            }
-                        }
-                        // check if volumeFolder is empty, remove it
-                        try {
-                            Files.delete(currentFolder);
-                        } catch (IOException e) {
-                            // folder cannot be deleted, probably because it is not empty
-                            log.error(e);
-                        }
+                    if (job.isResume() && isTransferred(image, destination)) {
+                        continue;
                     }
-                } catch (UGHException e) {
-                    log.error(e);
-                    io.setErrorMessage("Cannot add additional metadata to '" + volumeFolder + "'");
-                    io.setImportReturnValue(ImportReturnValue.InvalidData);
+                    transfers.add(imageTransfer.submit(image, destination, job.getManifest()));
+                }
+            } catch (IOException e) {
+                // wait for the images, which are already submitted, but don't record the volume as transferred
+                log.error(e);
+                job.fail("Cannot import images of '" + volumeFolder + "': " + e.getMessage());
+            }
+        }
+        return ImageTransfer.allOf(transfers).handle((result, exception) -> {
+            if (exception != null) {
+                log.error(exception);
+            }
+            if (exception != null && !job.isFailed()) {
+                job.fail("Cannot import images of '" + volumeFolder + "': " + exception.getMessage());
+            }
+            return job;
+        });
+    }
 
+    /**
+     * Cleanup stage: store the checksums, remove the volume folder, if the images were moved, and finish the volume
+     */
+    private VolumeJob finishVolume(VolumeJob job) {
+        String progressKey = job.getProgressKey();
+        if (job.getManifest() != null) {
+            // keep the checksums of the transferred images, even if some of them failed
+            try {
+                job.getManifest().save();
+            } catch (IOException e) {
+                log.error(e);
+                if (!job.isFailed()) {
+                    job.fail("Cannot write the checksums of '" + job.getVolumeFolder().getName() + "'");
                 }
             }
-            // now add the process to the list
         }
-        return answer;
+        if (checksumStore != null) {
+            try {
+                checksumStore.save();
+            } catch (IOException e) {
+                // the checksums are calculated again by the next run
+                log.error("Cannot write the checksum store", e);
+            }
+        }
+        if (job.isFailed()) {
+            return job;
+        }
+        progressJournal.record(progressKey, ImportProgressJournal.State.IMAGES_TRANSFERRED);
+        if (isMoveStrategy()) {
+            // the folder is already gone, if an interrupted run removed it
+            Path currentFolder = job.getVolumeFolder().getPath();
+            if (Files.exists(currentFolder)) {
+                long cleanupStart = System.nanoTime();
+                limits.call(Resource.SOURCE, () -> {
+                    cleanupVolumeFolder(currentFolder);
+                    return null;
+                });
+                statistics.recordTime(Phase.CLEANUP, System.nanoTime() - cleanupStart);
+            }
+            progressJournal.record(progressKey, ImportProgressJournal.State.CLEANED);
+        }
+        // folders of interrupted runs, which were already moved, are not scanned anymore
+        if (volumeIndex != null && job.getFingerprint().getFiles() > 0) {
+            volumeIndex.record(progressKey, job.getFingerprint());
+        }
+        return job;
     }
 
-    public Fileformat getRecordFromCatalogue(String id) {
-        // opac request for anchor id
-        IOpacPlugin myImportOpac = null;
-        ConfigOpacCatalogue coc = null;
-        ConfigOpac co = ConfigOpac.getInstance();
-        for (ConfigOpacCatalogue configOpacCatalogue : co.getAllCatalogues("")) {
-            if (configOpacCatalogue.getTitle().equals(catalogueName)) {
-                myImportOpac = configOpacCatalogue.getOpacPlugin();
-                coc = configOpacCatalogue;
+    /**
+     * Check if an image was already transferred by an interrupted run
+     */
+    private boolean isTransferred(Path image, Path destination) {
+        if (!Files.exists(destination)) {
+            return false;
+        }
+        if (!Files.exists(image)) {
+            // already moved
+            return true;
+        }
+        try {
+            return Files.size(image) == Files.size(destination);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private boolean isMoveStrategy() {
+        return ImageTransfer.STRATEGY_MOVE.equalsIgnoreCase(config.getImageImportStrategy());
+    }
+
+    /**
+     * Get the digital collections for the volume, either the selected or the configured ones
+     */
+    private List<String> getCollections(Record record) {
+        List<String> collections = new ArrayList<>();
+        if (record.getCollections() != null && !record.getCollections().isEmpty()) {
+            // use selected collection
+            for (String col : record.getCollections()) {
+                if (StringUtils.isNotBlank(col)) {
+                    collections.add(col);
+                }
             }
+        } else if (StringUtils.isNotBlank(config.getCollection())) {
+            // use configured collection
+            collections.add(config.getCollection());
         }
-        if (myImportOpac == null) {
-            return null;
+        return collections;
+    }
+
+    /**
+     * remove empty folder if imageImportStrategy was set to move
+     *
+     * @param currentFolder volume folder
+     */
+    private void cleanupVolumeFolder(Path currentFolder) {
+        // check if volumeFolder contains empty sub folder, remove them
+        List<Path> subdirs = StorageProvider.getInstance().listFiles(currentFolder.toString());
+        for (Path dir : subdirs) {
+            try {
+                Files.delete(dir);
+            } catch (IOException e) {
+                // folder cannot be deleted, probably because it is not empty
+                log.error(e);
+            }
+        }
+        // check if volumeFolder is empty, remove it
+        try {
+            Files.delete(currentFolder);
+        } catch (IOException e) {
+            // folder cannot be deleted, probably because it is not empty
+            log.error(e);
+        }
+    }
+
+    /**
+     * A volume folder, that is still processed
+     */
+    private static class PendingVolume {
+        @Getter
+        private final VolumeFolder volumeFolder;
+        @Getter
+        private final CompletableFuture<ImportObject> result;
+        // process title claimed by this node, null if the import is not split
+        @Getter
+        private final String claim;
+
+        PendingVolume(VolumeFolder volumeFolder, CompletableFuture<ImportObject> result, String claim) {
+            this.volumeFolder = volumeFolder;
+            this.result = result;
+            this.claim = claim;
+        }
+    }
+
+    /**
+     * A volume folder on its way through the stages of the import
+     */
+    private static class VolumeJob {
+        @Getter
+        private final Record record;
+        @Getter
+        private final VolumeFolder volumeFolder;
+        @Getter
+        private final String progressKey;
+        // state of the folder before the import
+        @Getter
+        private final Fingerprint fingerprint;
+        // state reached by an interrupted run
+        @Getter
+        private final ImportProgressJournal.State state;
+        @Getter
+        private final VolumeName volumeName;
+        @Getter
+        private final String metsfilename;
+        // the METS file of an interrupted run is used
+        @Getter
+        private final boolean resume;
+        @Getter
+        private final ImportObject importObject = new ImportObject();
+        @Getter
+        @Setter
+        private Fileformat fileformat;
+        @Getter
+        @Setter
+        private PageTable pages;
+        @Getter
+        @Setter
+        private ChecksumManifest manifest;
+        @Getter
+        private boolean failed;
+
+        VolumeJob(Record record, VolumeFolder volumeFolder, String progressKey, Fingerprint fingerprint, ImportProgressJournal.State state,
+                VolumeName volumeName, String metsfilename, boolean resume) {
+            this.record = record;
+            this.volumeFolder = volumeFolder;
+            this.progressKey = progressKey;
+            this.fingerprint = fingerprint;
+            this.state = state;
+            this.volumeName = volumeName;
+            this.metsfilename = metsfilename;
+            this.resume = resume;
+        }
+
+        /**
+         * Mark the import of the volume as failed, the remaining stages skip it
+         */
+        void fail(String message) {
+            failed = true;
+            importObject.setErrorMessage(message);
+            importObject.setImportReturnValue(ImportReturnValue.InvalidData);
         }
-        Fileformat fileformat = null;
+
+        /**
+         * Mark the volume as not imported, because there is nothing to do
+         */
+        void skip(String message) {
+            failed = true;
+            importObject.setErrorMessage(message);
+            importObject.setImportReturnValue(ImportReturnValue.NoData);
+            importObject.setProcessTitle(volumeName.getProcessTitle());
+        }
+    }
+
+    /**
+     * Get the record for the given PPN. Within an import run the response is cached, each call returns its own copy of the record.
+     *
+     * @param id PPN of the journal
+     * @return the record or null, if the catalogue request failed
+     */
+    public Fileformat getRecordFromCatalogue(String id) {
+        if (catalogueCache == null) {
+            return searchCatalogue(id);
+        }
+        return catalogueCache.get(catalogueName, "12", id, prefs, () -> loadRecord(id));
+    }
+
+    private Fileformat loadRecord(String id) {
+        if (prefetcher != null) {
+            Fileformat fileformat = prefetcher.take(id);
+            if (fileformat != null) {
+                return fileformat;
+            }
+            if (prefetcher.isFailed(id)) {
+                // already requested with all repetitions
+                return null;
+            }
+        }
+        return searchCatalogue(id);
+    }
+
+    private Fileformat searchCatalogue(String id) {
         try {
-            fileformat = myImportOpac.search("12", id, coc, prefs);
+            return requestCatalogue(id);
         } catch (Exception e) {
             log.error(e);
+            return null;
+        }
+    }
+
+    private Fileformat requestCatalogue(String id) throws Exception {
+        // opac request for anchor id, the catalogue is resolved only once
+        if (catalogueSource == null) {
+            catalogueSource = openCatalogue();
+        }
+        CatalogueSource source = catalogueSource;
+        AdaptiveConcurrencyLimit limit = catalogueLimit;
+        if (limit != null) {
+            return limit.call(() -> source.search(id, prefs));
+        }
+        return limits.call(Resource.CATALOGUE, () -> source.search(id, prefs));
+    }
+
+    /**
+     * Open the configured catalogue dump or resolve the catalogue
+     *
+     * @throws ImportPluginException if neither the dump nor the catalogue is available
+     */
+    private CatalogueSource openCatalogue() throws ImportPluginException {
+        if (config == null || StringUtils.isBlank(config.getCatalogueDump())) {
+            return CatalogueConnection.resolve(catalogueName);
+        }
+        try {
+            PicaDumpCatalogue dump = PicaDumpCatalogue.open(Paths.get(config.getCatalogueDump()));
+            log.info("Using {} records of the catalogue dump {}", dump.getSize(), dump.getDump());
+            return dump;
+        } catch (IOException e) {
+            throw new ImportPluginException("Cannot read the catalogue dump '" + config.getCatalogueDump() + "': " + e.getMessage(), e);
+        }
+    }
+
+    private void closeCatalogue() {
+        if (catalogueSource instanceof PicaDumpCatalogue) {
+            try {
+                ((PicaDumpCatalogue) catalogueSource).close();
+            } catch (IOException e) {
+                log.error(e);
+            }
         }
-        return fileformat;
+        catalogueSource = null;
     }
 
     /**
@@ -446,7 +1019,7 @@ public class JournalsImportPlugin implements IImportPluginVersion2 {
     @Override
     public boolean isRunnableAsGoobiScript() {
         readConfig();
-        return runAsGoobiScript;
+        return config.isRunAsGoobiScript();
     }
 
     /* *************************************************************** */
@@ -499,17 +1072,87 @@ public class JournalsImportPlugin implements IImportPluginVersion2 {
         }
         readConfig();
 
-        List<String> foldernames = new ArrayList<>();
-        try {
-            Files.find(Paths.get(basedir), 1, (p, file) -> file.isDirectory() && p.getFileName().toString().matches("\\d+X?"))
-            .forEach(p -> foldernames.add(p.getFileName().toString()));
-        } catch (IOException e) {
-            log.error(e);
+        JournalListingIndex listing = config.isJournalListingIndex() ? openJournalListing() : null;
+        List<String> foldernames;
+        if (listing != null) {
+            foldernames = listing.getJournalIds();
+        } else {
+            foldernames = new JournalFolderScanner().listJournals(Paths.get(basedir));
         }
 
+        // only offer the journals of this node
+        ImportShard shard = createShard();
+        if (shard.isSizeBased()) {
+            Set<String> volumes;
+            if (listing != null) {
+                // use the stored sizes, don't scan all volume folders
+                volumes = shard.getVolumesBySize(listing.getVolumeSizes());
+            } else {
+                volumes = shard.getVolumes(new JournalFolderScanner().scan(Paths.get(basedir)));
+            }
+            Set<String> shardJournals = new TreeSet<>();
+            for (String volume : volumes) {
+                shardJournals.add(volume.substring(0, volume.indexOf('/')));
+            }
+            return new ArrayList<>(shardJournals);
+        } else if (shard.isEnabled()) {
+            List<String> shardJournals = new ArrayList<>();
+            for (String foldername : foldernames) {
+                if (shard.containsJournal(foldername)) {
+                    shardJournals.add(foldername);
+                }
+            }
+            return shardJournals;
+        }
         return foldernames;
     }
 
+    /**
+     * Get a page of the journal folders with their number of volumes and images and their size. Requires the journal listing index, the
+     * listing is refreshed first unless it is recent.
+     *
+     * @param filter part of the PPN, empty or null for all journals
+     * @param offset number of matching journals to skip
+     * @param limit maximum number of journals, 0 for all
+     * @return the journals or an empty list, if the listing cannot be read
+     */
+    public List<JournalEntry> getJournalListing(String filter, int offset, int limit) {
+        if (StringUtils.isBlank(workflowTitle)) {
+            workflowTitle = form.getTemplate().getTitel();
+        }
+        readConfig();
+        JournalListingIndex listing = openJournalListing();
+        return listing == null ? new ArrayList<>() : listing.getJournals(filter, offset, limit);
+    }
+
+    /**
+     * Read the stored listing of the journal folders and refresh it
+     *
+     * @return the listing or null, if it cannot be read or refreshed
+     */
+    private JournalListingIndex openJournalListing() {
+        Path folder = Paths.get(basedir);
+        try {
+            JournalListingIndex listing = new JournalListingIndex(folder, folder.resolve(JournalListingIndex.FILENAME));
+            if (!listing.isRecent(config.getJournalListingMaxAge())) {
+                long start = System.currentTimeMillis();
+                int scanned = listing.refresh(config.getJournalRescanInterval());
+                log.debug("Refreshed the listing of {} journals in {} ms, {} journals were scanned", listing.size(),
+                        System.currentTimeMillis() - start, scanned);
+                try {
+                    listing.save();
+                } catch (IOException e) {
+                    // read-only import folder, the listing is created again next time
+                    log.warn("Cannot write the journal listing {}: {}", listing.getFile(), e.getMessage());
+                }
+            }
+            return listing;
+        } catch (IOException e) {
+            log.error("Cannot read the journal listing of {}", folder, e);
+            return null;
+        }
+    }
+
     @Override
     public List<? extends DocstructElement> getCurrentDocStructs() {
         return null;
@@ -0,0 +1,118 @@
+package de.intranda.goobi.plugins;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.intranda.goobi.plugins.JournalFolderScanner.IssueFolder;
+import de.intranda.goobi.plugins.JournalFolderScanner.VolumeFolder;
+
+/**
+ * Compact list of the pages of a volume. Only the positions of the images and the number of their issue are stored, the page elements and
+ * the image names are created when the METS file is written. The table refers to the images of the volume folder, so it can only be used
+ * until the volume folder is released.
+ */
+public class PageTable {
+
+    private final List<Path> images;
+
+    // position of the image of each page in the image list
+    private final int[] imageIndexes;
+
+    // issue number of each page, -1 if the page belongs directly to the volume
+    private final int[] issueIndexes;
+
+    // issue folders in the order of their first page
+    private final String[] issueFolders;
+
+    // prefix of the image names of each issue
+    private final String[] issuePrefixes;
+
+    private PageTable(List<Path> images, int[] imageIndexes, int[] issueIndexes, String[] issueFolders, String[] issuePrefixes) {
+        this.images = images;
+        this.imageIndexes = imageIndexes;
+        this.issueIndexes = issueIndexes;
+        this.issueFolders = issueFolders;
+        this.issuePrefixes = issuePrefixes;
+    }
+
+    /**
+     * Create the table for a scanned volume folder, pdf files are skipped
+     */
+    public static PageTable create(VolumeFolder volumeFolder) {
+        List<Path> images = volumeFolder.getImages();
+        int[] imageIndexes = new int[images.size()];
+        int[] issueIndexes = new int[images.size()];
+        Map<String, Integer> issues = new HashMap<>();
+        String[] issueFolders = new String[images.size()];
+        String[] issuePrefixes = new String[images.size()];
+        int size = 0;
+        for (int i = 0; i < images.size(); i++) {
+            Path image = images.get(i);
+            if (!VolumeStructureBuilder.isPage(image)) {
+                continue;
+            }
+            int issueIndex = -1;
+            String parentFolder = image.getParent().getFileName().toString();
+            if (!parentFolder.equals(volumeFolder.getName())) {
+                Integer issue = issues.get(parentFolder);
+                if (issue == null) {
+                    issue = issues.size();
+                    issues.put(parentFolder, issue);
+                    issueFolders[issue] = parentFolder;
+                    IssueFolder issueFolder = volumeFolder.getIssues().get(parentFolder);
+                    issuePrefixes[issue] = issueFolder != null ? issueFolder.getImagePrefix() : IssueFolder.createImagePrefix(parentFolder);
+                }
+                issueIndex = issue;
+            }
+            imageIndexes[size] = i;
+            issueIndexes[size] = issueIndex;
+            size++;
+        }
+        return new PageTable(images, Arrays.copyOf(imageIndexes, size), Arrays.copyOf(issueIndexes, size),
+                Arrays.copyOf(issueFolders, issues.size()), Arrays.copyOf(issuePrefixes, issues.size()));
+    }
+
+    /**
+     * Number of pages
+     */
+    public int size() {
+        return imageIndexes.length;
+    }
+
+    /**
+     * Number of issues, which contain at least one page
+     */
+    public int getIssueCount() {
+        return issueFolders.length;
+    }
+
+    /**
+     * Get the folder name of an issue
+     *
+     * @param issue number of the issue, in the order of their first page
+     */
+    public String getIssueFolder(int issue) {
+        return issueFolders[issue];
+    }
+
+    /**
+     * Get the issue of a page
+     *
+     * @return number of the issue or -1, if the page belongs directly to the volume
+     */
+    public int getIssue(int page) {
+        return issueIndexes[page];
+    }
+
+    /**
+     * Get the name of the image in the process folder, images of issues are prefixed with the issue folder name
+     */
+    public String getImageName(int page) {
+        String name = images.get(imageIndexes[page]).getFileName().toString();
+        int issue = issueIndexes[page];
+        return issue < 0 ? name : issuePrefixes[issue] + name;
+    }
+}
@@ -0,0 +1,334 @@
+package de.intranda.goobi.plugins;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import ugh.dl.Fileformat;
+import ugh.dl.Prefs;
+
+/**
+ * Catalogue records from a local PICA XML dump in the same format as the catalogue responses: a collection with record, field and subfield
+ * elements. The dump is read once to create an index of the record positions, sorted by PPN (field 003@, subfield 0). Lookups search the
+ * index and read only the requested record from the dump, so neither the dump nor the index is loaded into memory.
+ *
+ * The index is stored next to the dump and created again, if the size or the modification time of the dump changes.
+ */
+@Log4j2
+public class PicaDumpCatalogue implements CatalogueSource, AutoCloseable {
+
+    public static final String INDEX_EXTENSION = ".idx";
+
+    private static final byte[] RECORD_START = "<record".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RECORD_END = "</record>".getBytes(StandardCharsets.US_ASCII);
+
+    private static final String PPN_FIELD = "003@";
+    private static final String PPN_SUBFIELD = "0";
+
+    // size and modification time of the dump, number of records
+    private static final int HEADER_LENGTH = 8 + 8 + 4;
+    // PPN padded with zero bytes, offset and length of the record in the dump
+    private static final int KEY_LENGTH = 16;
+    private static final int ENTRY_LENGTH = KEY_LENGTH + 8 + 4;
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    @Getter
+    private final Path dump;
+
+    private final FileChannel dumpChannel;
+
+    private final FileChannel indexChannel;
+
+    // number of records in the index
+    @Getter
+    private final int size;
+
+    private final ThreadLocal<DocumentBuilder> documentBuilders = ThreadLocal.withInitial(PicaDumpCatalogue::createDocumentBuilder);
+
+    private PicaDumpCatalogue(Path dump, Path index) throws IOException {
+        this.dump = dump;
+        dumpChannel = FileChannel.open(dump, StandardOpenOption.READ);
+        indexChannel = FileChannel.open(index, StandardOpenOption.READ);
+        ByteBuffer header = read(indexChannel, 0, HEADER_LENGTH);
+        size = header.getInt(16);
+    }
+
+    /**
+     * Open a dump, its index is created first if it does not exist or is outdated
+     *
+     * @param dump PICA XML file
+     * @throws IOException if the dump cannot be read or the index cannot be written
+     */
+    public static PicaDumpCatalogue open(Path dump) throws IOException {
+        Path index = getIndexFile(dump);
+        if (!isIndexCurrent(dump, index)) {
+            long start = System.nanoTime();
+            int records = createIndex(dump, index);
+            log.info("Indexed {} records of {} in {} ms", records, dump, (System.nanoTime() - start) / 1000000);
+        }
+        return new PicaDumpCatalogue(dump, index);
+    }
+
+    public static Path getIndexFile(Path dump) {
+        return dump.resolveSibling(dump.getFileName().toString() + INDEX_EXTENSION);
+    }
+
+    private static boolean isIndexCurrent(Path dump, Path index) throws IOException {
+        if (!Files.exists(index) || Files.size(index) < HEADER_LENGTH) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            ByteBuffer header = read(channel, 0, HEADER_LENGTH);
+            return header.getLong(0) == Files.size(dump) && header.getLong(8) == Files.getLastModifiedTime(dump).toMillis()
+                    && channel.size() == HEADER_LENGTH + (long) header.getInt(16) * ENTRY_LENGTH;
+        }
+    }
+
+    /**
+     * Read the dump once and write the sorted positions of its records
+     *
+     * @return number of indexed records
+     */
+    static int createIndex(Path dump, Path index) throws IOException {
+        List<IndexEntry> entries = new ArrayList<>();
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+
+        // find the record elements on byte level to get their exact positions, the PPN is read from the record with StAX
+        ByteArrayOutputStream currentRecord = new ByteArrayOutputStream();
+        long position = 0;
+        long recordStart = -1;
+        int startMatch = 0;
+        int endMatch = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(dump)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                for (int i = 0; i < read; i++, position++) {
+                    byte b = buffer[i];
+                    if (recordStart < 0) {
+                        if (startMatch == RECORD_START.length) {
+                            startMatch = 0;
+                            // <record> or <record attributes>, but not <records>
+                            if (b == '>' || Character.isWhitespace(b)) {
+                                recordStart = position - RECORD_START.length;
+                                currentRecord.reset();
+                                currentRecord.write(RECORD_START, 0, RECORD_START.length);
+                                currentRecord.write(b);
+                            }
+                            continue;
+                        }
+                        startMatch = b == RECORD_START[startMatch] ? startMatch + 1 : b == RECORD_START[0] ? 1 : 0;
+                        continue;
+                    }
+                    currentRecord.write(b);
+                    endMatch = b == RECORD_END[endMatch] ? endMatch + 1 : b == RECORD_END[0] ? 1 : 0;
+                    if (endMatch == RECORD_END.length) {
+                        endMatch = 0;
+                        addEntry(entries, inputFactory, currentRecord, recordStart);
+                        recordStart = -1;
+                    }
+                }
+            }
+        }
+
+        // the last record of a PPN wins
+        entries.sort(Comparator.comparing(IndexEntry::getPpn));
+        List<IndexEntry> unique = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            if (i + 1 == entries.size() || !entries.get(i).getPpn().equals(entries.get(i + 1).getPpn())) {
+                unique.add(entries.get(i));
+            }
+        }
+
+        Path temp = index.resolveSibling(index.getFileName().toString() + ".part");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.putLong(Files.size(dump)).putLong(Files.getLastModifiedTime(dump).toMillis()).putInt(unique.size()).flip();
+            write(out, header);
+            ByteBuffer entryBuffer = ByteBuffer.allocate(ENTRY_LENGTH * 1024);
+            for (IndexEntry entry : unique) {
+                if (!entryBuffer.hasRemaining()) {
+                    entryBuffer.flip();
+                    write(out, entryBuffer);
+                    entryBuffer.clear();
+                }
+                entryBuffer.put(toKey(entry.getPpn())).putLong(entry.getOffset()).putInt(entry.getLength());
+            }
+            entryBuffer.flip();
+            write(out, entryBuffer);
+        }
+        Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING);
+        return unique.size();
+    }
+
+    private static void addEntry(List<IndexEntry> entries, XMLInputFactory inputFactory, ByteArrayOutputStream record, long offset) {
+        byte[] bytes = record.toByteArray();
+        String ppn;
+        try {
+            ppn = readPpn(inputFactory, bytes);
+        } catch (XMLStreamException e) {
+            log.warn("Ignoring invalid record at byte {}: {}", offset, e.getMessage());
+            return;
+        }
+        if (ppn == null || ppn.isEmpty() || ppn.length() > KEY_LENGTH || !StandardCharsets.US_ASCII.newEncoder().canEncode(ppn)) {
+            log.warn("Ignoring record at byte {} without a valid PPN", offset);
+            return;
+        }
+        entries.add(new IndexEntry(ppn, offset, bytes.length));
+    }
+
+    private static String readPpn(XMLInputFactory inputFactory, byte[] record) throws XMLStreamException {
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(new ByteArrayInputStream(record), StandardCharsets.UTF_8.name());
+        try {
+            boolean ppnField = false;
+            StringBuilder ppn = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if ("field".equals(name) || "datafield".equals(name)) {
+                        ppnField = PPN_FIELD.equals(reader.getAttributeValue(null, "tag"));
+                    } else if ("subfield".equals(name) && ppnField && PPN_SUBFIELD.equals(reader.getAttributeValue(null, "code"))) {
+                        ppn = new StringBuilder();
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS && ppn != null) {
+                    ppn.append(reader.getText());
+                } else if (event == XMLStreamConstants.END_ELEMENT && ppn != null) {
+                    return ppn.toString().trim();
+                }
+            }
+            return null;
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Override
+    public Fileformat search(String id, Prefs prefs) throws Exception {
+        int entry = find(id);
+        if (entry < 0) {
+            return null;
+        }
+        ByteBuffer location = read(indexChannel, HEADER_LENGTH + (long) entry * ENTRY_LENGTH + KEY_LENGTH, 12);
+        ByteBuffer record = read(dumpChannel, location.getLong(0), location.getInt(8));
+        Document document = documentBuilders.get().parse(new ByteArrayInputStream(record.array()));
+        return new PicaRecordConverter(prefs).convert(document.getDocumentElement());
+    }
+
+    /**
+     * Binary search of the PPN in the index
+     *
+     * @return number of the entry or -1, if the PPN is unknown
+     */
+    private int find(String id) throws IOException {
+        if (id == null || id.isEmpty() || id.length() > KEY_LENGTH || !StandardCharsets.US_ASCII.newEncoder().canEncode(id)) {
+            return -1;
+        }
+        byte[] key = toKey(id);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            ByteBuffer entryKey = read(indexChannel, HEADER_LENGTH + (long) middle * ENTRY_LENGTH, KEY_LENGTH);
+            int comparison = compare(entryKey.array(), key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] toKey(String ppn) {
+        byte[] key = new byte[KEY_LENGTH];
+        byte[] bytes = ppn.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, key, 0, bytes.length);
+        return key;
+    }
+
+    private static int compare(byte[] a, byte[] b) {
+        for (int i = 0; i < KEY_LENGTH; i++) {
+            int difference = (a[i] & 0xff) - (b[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file at byte " + (position + buffer.position()));
+            }
+        }
+        return buffer;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static DocumentBuilder createDocumentBuilder() {
+        try {
+            return DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        dumpChannel.close();
+        indexChannel.close();
+    }
+
+    /**
+     * Position of a record in the dump
+     */
+    private static class IndexEntry {
+        @Getter
+        private final String ppn;
+        @Getter
+        private final long offset;
+        @Getter
+        private final int length;
+
+        IndexEntry(String ppn, long offset, int length) {
+            this.ppn = ppn;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
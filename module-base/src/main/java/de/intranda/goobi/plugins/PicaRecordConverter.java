@@ -0,0 +1,53 @@
+package de.intranda.goobi.plugins;
+
+import org.w3c.dom.Node;
+
+import ugh.dl.DigitalDocument;
+import ugh.dl.DocStruct;
+import ugh.dl.DocStructType;
+import ugh.dl.Fileformat;
+import ugh.dl.Prefs;
+import ugh.exceptions.UGHException;
+import ugh.fileformats.mets.MetsMods;
+import ugh.fileformats.opac.PicaPlus;
+
+/**
+ * Converts a PICA+ record into a journal with an empty volume, in the same way as the PICA catalogue plugin does it
+ */
+public class PicaRecordConverter {
+
+    private final Prefs prefs;
+
+    private final DocStructType volumeType;
+
+    private final DocStructType physicalType;
+
+    public PicaRecordConverter(Prefs prefs) {
+        this.prefs = prefs;
+        volumeType = prefs.getDocStrctTypeByName("PeriodicalVolume");
+        physicalType = prefs.getDocStrctTypeByName("BoundBook");
+    }
+
+    /**
+     * Convert the record
+     *
+     * @param record a record element with PICA+ field and subfield elements
+     * @return the journal with an empty volume as first child
+     * @throws UGHException if the record cannot be mapped with the ruleset
+     */
+    public Fileformat convert(Node record) throws UGHException {
+        PicaPlus pp = new PicaPlus(prefs);
+        pp.read(record);
+        DigitalDocument dd = pp.getDigitalDocument();
+        DocStruct anchor = dd.getLogicalDocStruct();
+        if (anchor.getAllChildren() == null || anchor.getAllChildren().isEmpty()) {
+            anchor.addChild(dd.createDocStruct(volumeType));
+        }
+        if (dd.getPhysicalDocStruct() == null) {
+            dd.setPhysicalDocStruct(dd.createDocStruct(physicalType));
+        }
+        MetsMods fileformat = new MetsMods(prefs);
+        fileformat.setDigitalDocument(dd);
+        return fileformat;
+    }
+}
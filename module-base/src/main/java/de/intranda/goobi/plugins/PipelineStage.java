@@ -0,0 +1,192 @@
+package de.intranda.goobi.plugins;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+/**
+ * A step of the import with its own threads and a bounded queue. If the queue is full, the caller gets blocked until a task is finished, so
+ * a slow stage throttles the stages before it.
+ *
+ * With virtual threads each task gets its own thread. The number of running and waiting tasks is then limited by semaphores instead of a
+ * thread pool and its queue.
+ */
+public class PipelineStage implements Executor, AutoCloseable {
+
+    @Getter
+    private final String name;
+
+    @Getter
+    private final int threads;
+
+    private final ExecutorService executor;
+
+    // running tasks, only used with virtual threads
+    private final Semaphore running;
+
+    // running and waiting tasks, only used with virtual threads
+    private final Semaphore capacity;
+
+    private final int queueSize;
+
+    // time the threads spent in tasks
+    private final LongAdder busyTime = new LongAdder();
+
+    private final LongAdder completedTasks = new LongAdder();
+
+    private final long start = System.nanoTime();
+
+    /**
+     *
+     * @param name name of the stage, used in the thread names and the log
+     * @param threads number of parallel tasks
+     * @param queueSize maximum number of waiting tasks
+     */
+    public PipelineStage(String name, int threads, int queueSize) {
+        this(name, threads, queueSize, false);
+    }
+
+    /**
+     *
+     * @param name name of the stage, used in the thread names and the log
+     * @param threads number of parallel tasks
+     * @param queueSize maximum number of waiting tasks
+     * @param virtualThreads run each task in a new virtual thread, if the runtime supports it
+     */
+    public PipelineStage(String name, int threads, int queueSize, boolean virtualThreads) {
+        this.name = name;
+        this.threads = threads;
+        this.queueSize = queueSize;
+
+        ExecutorService virtualExecutor = virtualThreads ? VirtualThreads.newExecutor("journals-import-" + name + "-") : null;
+        if (virtualExecutor != null) {
+            executor = virtualExecutor;
+            running = new Semaphore(threads, true);
+            capacity = new Semaphore(threads + queueSize, true);
+            return;
+        }
+        running = null;
+        capacity = null;
+        AtomicInteger threadCounter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+            Thread thread = new Thread(r, "journals-import-" + name + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, (r, e) -> {
+            // queue is full, wait until a task is finished
+            try {
+                e.getQueue().put(r);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(ex);
+            }
+        });
+    }
+
+    /**
+     * Check if the tasks run in virtual threads
+     */
+    public boolean isVirtual() {
+        return running != null;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!isVirtual()) {
+            executor.execute(() -> run(task));
+            return;
+        }
+        // stage is full, wait until a task is finished
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    running.acquire();
+                } catch (InterruptedException e) {
+                    // stage was closed
+                    capacity.release();
+                    return;
+                }
+                try {
+                    run(task);
+                } finally {
+                    running.release();
+                    capacity.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            capacity.release();
+            throw e;
+        }
+    }
+
+    private void run(Runnable task) {
+        long taskStart = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            busyTime.add(System.nanoTime() - taskStart);
+            completedTasks.increment();
+        }
+    }
+
+    /**
+     * Number of waiting tasks
+     */
+    public int getQueueDepth() {
+        if (isVirtual()) {
+            return threads + queueSize - capacity.availablePermits() - getActiveThreads();
+        }
+        return ((ThreadPoolExecutor) executor).getQueue().size();
+    }
+
+    /**
+     * Number of threads, that are currently working
+     */
+    public int getActiveThreads() {
+        if (isVirtual()) {
+            return threads - running.availablePermits();
+        }
+        return ((ThreadPoolExecutor) executor).getActiveCount();
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks.sum();
+    }
+
+    /**
+     * Share of the available thread time, that was spent in finished tasks since the stage was created
+     *
+     * @return value between 0 and 1
+     */
+    public double getUtilization() {
+        long elapsed = System.nanoTime() - start;
+        return elapsed > 0 ? Math.min(1, (double) busyTime.sum() / (elapsed * (double) threads)) : 0;
+    }
+
+    /**
+     * Current state of the stage for the log
+     */
+    public String getStatus() {
+        return String.format("%s%s: %d/%d busy, %d queued, %d done, %.0f%% utilized", name, isVirtual() ? " (virtual)" : "", getActiveThreads(),
+                threads, getQueueDepth(), getCompletedTasks(), getUtilization() * 100);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
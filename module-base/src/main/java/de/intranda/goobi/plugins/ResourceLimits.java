@@ -0,0 +1,86 @@
+package de.intranda.goobi.plugins;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the number of parallel accesses to the shared resources of an import run. The stages of the pipeline may have more threads than the
+ * resources can handle, especially with virtual threads, so each access to a resource waits for a free permit.
+ *
+ * If a task needs both file systems, it gets the source before the target, so tasks never wait for each other.
+ */
+public class ResourceLimits {
+
+    /**
+     * Shared resources of the import
+     */
+    public enum Resource {
+        // requests to the catalogue
+        CATALOGUE,
+        // import folder with the scanned images
+        SOURCE,
+        // Goobi import and process folders
+        TARGET
+    }
+
+    /**
+     * A task, which accesses a resource
+     */
+    public interface LimitedTask<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /**
+     * Does not limit anything
+     */
+    public static final ResourceLimits UNLIMITED = new ResourceLimits(0, 0, 0);
+
+    private final Map<Resource, Semaphore> semaphores = new EnumMap<>(Resource.class);
+
+    /**
+     *
+     * @param catalogue maximum number of parallel catalogue requests, 0 for no limit
+     * @param source maximum number of parallel accesses to the import folder, 0 for no limit
+     * @param target maximum number of parallel accesses to the Goobi folders, 0 for no limit
+     */
+    public ResourceLimits(int catalogue, int source, int target) {
+        addLimit(Resource.CATALOGUE, catalogue);
+        addLimit(Resource.SOURCE, source);
+        addLimit(Resource.TARGET, target);
+    }
+
+    private void addLimit(Resource resource, int permits) {
+        if (permits > 0) {
+            semaphores.put(resource, new Semaphore(permits, true));
+        }
+    }
+
+    /**
+     * Run the task as soon as the resource is available
+     *
+     * @param resource resource, the task uses
+     * @param task task to run
+     * @return result of the task
+     * @throws E exception of the task
+     * @throws CancellationException if the thread is interrupted while it waits for the resource
+     */
+    public <T, E extends Exception> T call(Resource resource, LimitedTask<T, E> task) throws E {
+        Semaphore semaphore = semaphores.get(resource);
+        if (semaphore == null) {
+            return task.call();
+        }
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for " + resource.name().toLowerCase());
+        }
+        try {
+            return task.call();
+        } finally {
+            semaphore.release();
+        }
+    }
+}
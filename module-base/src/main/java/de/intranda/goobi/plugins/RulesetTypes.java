@@ -0,0 +1,73 @@
+package de.intranda.goobi.plugins;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import lombok.Getter;
+import ugh.dl.DocStructType;
+import ugh.dl.MetadataType;
+import ugh.dl.Prefs;
+
+/**
+ * The structure and metadata types used by the import, resolved once per ruleset
+ */
+public class RulesetTypes {
+
+    private static final Map<Prefs, RulesetTypes> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    @Getter
+    private final DocStructType issueType;
+    @Getter
+    private final DocStructType pageType;
+
+    // log + phys page no
+    @Getter
+    private final MetadataType physPageNumberType;
+    @Getter
+    private final MetadataType logicalPageNumberType;
+
+    @Getter
+    private final MetadataType pulicationYearType;
+    @Getter
+    private final MetadataType currentNoType;
+    @Getter
+    private final MetadataType currentNoSortType;
+    @Getter
+    private final MetadataType titleType;
+    @Getter
+    private final MetadataType collectionType;
+    @Getter
+    private final MetadataType catalogIdDigitalType;
+    @Getter
+    private final MetadataType imagePathType;
+
+    private RulesetTypes(Prefs prefs) {
+        issueType = prefs.getDocStrctTypeByName("PeriodicalIssue");
+        pageType = prefs.getDocStrctTypeByName("page");
+
+        physPageNumberType = prefs.getMetadataTypeByName("physPageNumber");
+        logicalPageNumberType = prefs.getMetadataTypeByName("logicalPageNumber");
+
+        pulicationYearType = prefs.getMetadataTypeByName("PublicationYear");
+        currentNoType = prefs.getMetadataTypeByName("CurrentNo");
+        currentNoSortType = prefs.getMetadataTypeByName("CurrentNoSorting");
+        titleType = prefs.getMetadataTypeByName("TitleDocMain");
+
+        //        catalogIdSourceType = prefs.getMetadataTypeByName("CatalogIDSource");
+        collectionType = prefs.getMetadataTypeByName("singleDigCollection");
+
+        catalogIdDigitalType = prefs.getMetadataTypeByName("CatalogIDDigital");
+        imagePathType = prefs.getMetadataTypeByName("pathimagefiles");
+    }
+
+    /**
+     * Get the resolved types of the given ruleset
+     *
+     * @param prefs loaded ruleset
+     * @return the types, resolved only on the first call for this ruleset
+     */
+    public static RulesetTypes getInstance(Prefs prefs) {
+        return CACHE.computeIfAbsent(prefs, RulesetTypes::new);
+    }
+}
@@ -0,0 +1,338 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.EndElement;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import lombok.extern.log4j.Log4j2;
+import ugh.dl.DigitalDocument;
+import ugh.dl.Prefs;
+import ugh.exceptions.UGHException;
+import ugh.exceptions.WriteException;
+import ugh.fileformats.mets.MetsMods;
+
+/**
+ * Writes the METS file of a volume without creating page elements in memory. The record with the journal, the volume and its issues is
+ * written by {@link MetsMods}, then the files, the physical pages and the links to the volume and the issues are streamed into this file.
+ *
+ * The digital document must be created by {@link VolumeStructureBuilder#buildWithoutPages(DigitalDocument, VolumeName, PageTable, List)}.
+ */
+@Log4j2
+public class StreamingMetsWriter {
+
+    private static final String METS_NS = "http://www.loc.gov/METS/";
+    private static final String XLINK_NS = "http://www.w3.org/1999/xlink";
+
+    private static final String LOGICAL_PAGE_NUMBER = "uncounted";
+
+    private final Prefs prefs;
+
+    private final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+    private final XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+
+    public StreamingMetsWriter(Prefs prefs) {
+        this.prefs = prefs;
+        // never resolve external entities of the written file
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        // declare the xlink namespace, if the record does not use it yet
+        outputFactory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, true);
+    }
+
+    /**
+     * Write the METS file
+     *
+     * @param digDoc journal, volume and issues without pages
+     * @param pages pages of the volume
+     * @param metsfilename name of the METS file, the anchor file is written next to it
+     * @throws UGHException if the METS file cannot be written
+     */
+    public void write(DigitalDocument digDoc, PageTable pages, String metsfilename) throws UGHException {
+        MetsMods mm = new MetsMods(prefs);
+        mm.setDigitalDocument(digDoc);
+        mm.write(metsfilename);
+
+        String volumeType = digDoc.getLogicalDocStruct().getAllChildren().get(0).getType().getName();
+        Path metsFile = Paths.get(metsfilename);
+        // the record stays in the METS file until the paged file replaces it
+        Path pagedFile = Paths.get(metsfilename + ".part");
+        try {
+            // a file left behind by an aborted run
+            Files.deleteIfExists(pagedFile);
+            Identifiers ids = readIdentifiers(metsFile, volumeType);
+            try (InputStream in = Files.newInputStream(metsFile); OutputStream out = Files.newOutputStream(pagedFile)) {
+                XMLEventReader reader = inputFactory.createXMLEventReader(in, "UTF-8");
+                XMLEventWriter writer = outputFactory.createXMLEventWriter(out, "UTF-8");
+                try {
+                    addPages(reader, writer, pages, ids);
+                    writer.flush();
+                } finally {
+                    writer.close();
+                    reader.close();
+                }
+            }
+            Files.move(pagedFile, metsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | XMLStreamException e) {
+            throw new WriteException("Cannot write the pages into " + metsfilename, e);
+        } finally {
+            try {
+                Files.deleteIfExists(pagedFile);
+            } catch (IOException e) {
+                log.error(e);
+            }
+        }
+    }
+
+    /**
+     * Collect the used ids and the ids of the volume and its issues
+     */
+    private Identifiers readIdentifiers(Path metsFile, String volumeType) throws IOException, XMLStreamException {
+        Identifiers ids = new Identifiers();
+        try (InputStream in = Files.newInputStream(metsFile)) {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(in, "UTF-8");
+            boolean logical = false;
+            // depth of the div elements in the logical structMap
+            int depth = 0;
+            int volumeDepth = -1;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String id = reader.getAttributeValue(null, "ID");
+                    if (id != null) {
+                        ids.register(id);
+                    }
+                    String name = reader.getLocalName();
+                    if ("structMap".equals(name)) {
+                        logical = "LOGICAL".equals(reader.getAttributeValue(null, "TYPE"));
+                    } else if (logical && "div".equals(name)) {
+                        depth++;
+                        if (volumeDepth < 0 && volumeType.equals(reader.getAttributeValue(null, "TYPE"))) {
+                            volumeDepth = depth;
+                            ids.volumeId = id;
+                        } else if (volumeDepth > 0 && depth == volumeDepth + 1) {
+                            ids.issueIds.add(id);
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if ("structMap".equals(name)) {
+                        logical = false;
+                    } else if (logical && "div".equals(name)) {
+                        if (depth == volumeDepth) {
+                            // only the first volume gets the pages
+                            volumeDepth = Integer.MAX_VALUE;
+                        }
+                        depth--;
+                    }
+                }
+            }
+            reader.close();
+        }
+        return ids;
+    }
+
+    private void addPages(XMLEventReader reader, XMLEventWriter writer, PageTable pages, Identifiers ids) throws XMLStreamException {
+        boolean physical = false;
+        int physicalDepth = 0;
+        boolean fileSec = false;
+        boolean localFileGroup = false;
+        boolean filesWritten = false;
+        boolean linksWritten = false;
+        while (reader.hasNext()) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                StartElement start = event.asStartElement();
+                String name = start.getName().getLocalPart();
+                if ("fileSec".equals(name)) {
+                    fileSec = true;
+                } else if ("fileGrp".equals(name)) {
+                    localFileGroup = "LOCAL".equals(getAttribute(start, "USE"));
+                } else if ("structMap".equals(name)) {
+                    if (!filesWritten) {
+                        // the record without pages has no files yet
+                        writeStart(writer, "fileSec");
+                        writeFileGroup(writer, pages, ids);
+                        writeEnd(writer, "fileSec");
+                        filesWritten = true;
+                    }
+                    physical = "PHYSICAL".equals(getAttribute(start, "TYPE"));
+                } else if (physical && "div".equals(name)) {
+                    physicalDepth++;
+                }
+            } else if (event.isEndElement()) {
+                EndElement end = event.asEndElement();
+                String name = end.getName().getLocalPart();
+                if (fileSec && localFileGroup && "fileGrp".equals(name) && !filesWritten) {
+                    writeFiles(writer, pages, ids);
+                    filesWritten = true;
+                } else if ("fileGrp".equals(name)) {
+                    localFileGroup = false;
+                } else if (fileSec && "fileSec".equals(name)) {
+                    if (!filesWritten) {
+                        writeFileGroup(writer, pages, ids);
+                        filesWritten = true;
+                    }
+                    fileSec = false;
+                } else if (physical && "div".equals(name)) {
+                    if (physicalDepth == 1) {
+                        // end of the physical root element
+                        writePages(writer, pages, ids);
+                    }
+                    physicalDepth--;
+                } else if ("structMap".equals(name)) {
+                    physical = false;
+                } else if ("structLink".equals(name)) {
+                    writeLinks(writer, pages, ids);
+                    linksWritten = true;
+                } else if ("mets".equals(name) && !linksWritten) {
+                    writeStart(writer, "structLink");
+                    writeLinks(writer, pages, ids);
+                    writeEnd(writer, "structLink");
+                    linksWritten = true;
+                }
+            }
+            writer.add(event);
+        }
+    }
+
+    private void writeFileGroup(XMLEventWriter writer, PageTable pages, Identifiers ids) throws XMLStreamException {
+        writeStart(writer, "fileGrp", "USE", "LOCAL");
+        writeFiles(writer, pages, ids);
+        writeEnd(writer, "fileGrp");
+    }
+
+    private void writeFiles(XMLEventWriter writer, PageTable pages, Identifiers ids) throws XMLStreamException {
+        for (int page = 0; page < pages.size(); page++) {
+            String imageName = pages.getImageName(page);
+            writeStart(writer, "file", "ID", ids.getFileId(page), "MIMETYPE", getMimetype(imageName));
+            List<Attribute> attributes = new ArrayList<>();
+            attributes.add(eventFactory.createAttribute("LOCTYPE", "URL"));
+            attributes.add(eventFactory.createAttribute("xlink", XLINK_NS, "href", imageName));
+            writer.add(eventFactory.createStartElement("mets", METS_NS, "FLocat", attributes.iterator(), null));
+            writeEnd(writer, "FLocat");
+            writeEnd(writer, "file");
+        }
+    }
+
+    private void writePages(XMLEventWriter writer, PageTable pages, Identifiers ids) throws XMLStreamException {
+        for (int page = 0; page < pages.size(); page++) {
+            writeStart(writer, "div", "ID", ids.getPhysId(page), "ORDER", String.valueOf(page + 1), "ORDERLABEL", LOGICAL_PAGE_NUMBER, "TYPE",
+                    "page");
+            writeStart(writer, "fptr", "FILEID", ids.getFileId(page));
+            writeEnd(writer, "fptr");
+            writeEnd(writer, "div");
+        }
+    }
+
+    private void writeLinks(XMLEventWriter writer, PageTable pages, Identifiers ids) throws XMLStreamException {
+        // the issues are the last children of the volume
+        int firstIssue = ids.issueIds.size() - pages.getIssueCount();
+        for (int page = 0; page < pages.size(); page++) {
+            String physId = ids.getPhysId(page);
+            // the volume and the issue of the page
+            int issue = pages.getIssue(page);
+            if (issue >= 0 && firstIssue + issue >= 0) {
+                writeLink(writer, ids.issueIds.get(firstIssue + issue), physId);
+            }
+            writeLink(writer, ids.volumeId, physId);
+        }
+    }
+
+    private void writeLink(XMLEventWriter writer, String from, String to) throws XMLStreamException {
+        List<Attribute> attributes = new ArrayList<>();
+        attributes.add(eventFactory.createAttribute("xlink", XLINK_NS, "from", from));
+        attributes.add(eventFactory.createAttribute("xlink", XLINK_NS, "to", to));
+        writer.add(eventFactory.createStartElement("mets", METS_NS, "smLink", attributes.iterator(), null));
+        writeEnd(writer, "smLink");
+    }
+
+    private void writeStart(XMLEventWriter writer, String name, String... attributeNamesAndValues) throws XMLStreamException {
+        List<Attribute> attributes = new ArrayList<>();
+        for (int i = 0; i < attributeNamesAndValues.length; i += 2) {
+            attributes.add(eventFactory.createAttribute(attributeNamesAndValues[i], attributeNamesAndValues[i + 1]));
+        }
+        writer.add(eventFactory.createStartElement("mets", METS_NS, name, attributes.iterator(), null));
+    }
+
+    private void writeEnd(XMLEventWriter writer, String name) throws XMLStreamException {
+        writer.add(eventFactory.createEndElement("mets", METS_NS, name));
+    }
+
+    private static String getAttribute(StartElement element, String name) {
+        Attribute attribute = element.getAttributeByName(new QName(name));
+        return attribute == null ? null : attribute.getValue();
+    }
+
+    private static String getMimetype(String imageName) {
+        String name = imageName.toLowerCase();
+        if (name.endsWith(".jpg") || name.endsWith(".jpeg")) {
+            return "image/jpeg";
+        } else if (name.endsWith(".jp2")) {
+            return "image/jp2";
+        } else if (name.endsWith(".png")) {
+            return "image/png";
+        }
+        return "image/tiff";
+    }
+
+    /**
+     * Identifiers of the record, written by MetsMods
+     */
+    private static class Identifiers {
+        // highest used numbers of the FILE_ and PHYS_ ids
+        private int maxFile = -1;
+        private int maxPhys = -1;
+        private String volumeId;
+        private final List<String> issueIds = new ArrayList<>();
+
+        /**
+         * Id of the file of a page, following the ids of the record
+         */
+        String getFileId(int page) {
+            return String.format("FILE_%04d", maxFile + 1 + page);
+        }
+
+        /**
+         * Id of a page, following the ids of the record
+         */
+        String getPhysId(int page) {
+            return String.format("PHYS_%04d", maxPhys + 1 + page);
+        }
+
+        void register(String id) {
+            if (id.startsWith("FILE_")) {
+                maxFile = Math.max(maxFile, parseNumber(id.substring(5)));
+            } else if (id.startsWith("PHYS_")) {
+                maxPhys = Math.max(maxPhys, parseNumber(id.substring(5)));
+            }
+        }
+
+        private static int parseNumber(String value) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package de.intranda.goobi.plugins;
+
+import java.io.InterruptedIOException;
+import java.time.Clock;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+/**
+ * Limits the bytes and files per second of all image transfers of an import run, so the import does not saturate the storage shared with other
+ * services. Both limits are token buckets, which hold the tokens of one second: short bursts are allowed, on average the transfers cannot
+ * exceed the limits.
+ *
+ * Time windows can define other limits for parts of the day, e.g. a higher limit at night.
+ */
+public class TransferThrottle {
+
+    /**
+     * Does not limit anything
+     */
+    public static final TransferThrottle UNLIMITED = new TransferThrottle(0, 0, new ArrayList<>());
+
+    private final double bytesPerSecond;
+
+    private final double filesPerSecond;
+
+    private final List<Window> windows;
+
+    // selects the time window
+    private final Clock clock;
+
+    private final boolean enabled;
+
+    private final TokenBucket bytes = new TokenBucket();
+
+    private final TokenBucket files = new TokenBucket();
+
+    // time the transfers waited for tokens, in nanoseconds
+    private final LongAdder waitTime = new LongAdder();
+
+    /**
+     *
+     * @param bytesPerSecond maximum bytes per second outside of the windows, 0 for no limit
+     * @param filesPerSecond maximum files per second outside of the windows, 0 for no limit
+     * @param windows times of the day with other limits, the first matching window is used
+     */
+    public TransferThrottle(double bytesPerSecond, double filesPerSecond, List<Window> windows) {
+        this(bytesPerSecond, filesPerSecond, windows, Clock.systemDefaultZone());
+    }
+
+    TransferThrottle(double bytesPerSecond, double filesPerSecond, List<Window> windows, Clock clock) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.filesPerSecond = filesPerSecond;
+        this.windows = new ArrayList<>(windows);
+        this.clock = clock;
+        boolean limited = bytesPerSecond > 0 || filesPerSecond > 0;
+        for (Window window : windows) {
+            limited |= window.getBytesPerSecond() > 0 || window.getFilesPerSecond() > 0;
+        }
+        enabled = limited;
+    }
+
+    /**
+     * Check if any limit is configured
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Wait until the next file may be transferred
+     *
+     * @throws InterruptedIOException if the thread is interrupted while it waits
+     */
+    public void acquireFile() throws InterruptedIOException {
+        Window window = getCurrentWindow();
+        sleep(files.reserve(1, window == null ? filesPerSecond : window.getFilesPerSecond(), System.nanoTime()));
+    }
+
+    /**
+     * Wait until the given number of bytes may be transferred
+     *
+     * @throws InterruptedIOException if the thread is interrupted while it waits
+     */
+    public void acquireBytes(long count) throws InterruptedIOException {
+        Window window = getCurrentWindow();
+        sleep(bytes.reserve(count, window == null ? bytesPerSecond : window.getBytesPerSecond(), System.nanoTime()));
+    }
+
+    /**
+     * Get the limits, which apply now
+     *
+     * @return the window or null, if the default limits apply
+     */
+    Window getCurrentWindow() {
+        if (windows.isEmpty()) {
+            return null;
+        }
+        LocalTime now = LocalTime.now(clock);
+        for (Window window : windows) {
+            if (window.contains(now)) {
+                return window;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Time in milliseconds, the transfers waited because of the limits
+     */
+    public long getWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(waitTime.sum());
+    }
+
+    private void sleep(long millis) throws InterruptedIOException {
+        if (millis <= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the transfer limit");
+        } finally {
+            waitTime.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Tokens of a single limit. A request takes its tokens immediately, even if there are not enough. The missing tokens determine how long the
+     * caller has to wait, so later requests wait behind it.
+     */
+    private static class TokenBucket {
+
+        private double tokens;
+
+        private double rate;
+
+        // in nanoseconds
+        private long lastRefill;
+
+        private boolean started;
+
+        /**
+         * @return time in milliseconds until the tokens are available
+         */
+        synchronized long reserve(double count, double currentRate, long now) {
+            if (currentRate <= 0) {
+                rate = 0;
+                return 0;
+            }
+            if (!started || rate != currentRate) {
+                // first request or new time window, start with the tokens of one second
+                rate = currentRate;
+                tokens = rate;
+                started = true;
+            } else {
+                tokens = Math.min(rate, tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+            }
+            lastRefill = now;
+            tokens -= count;
+            return tokens >= 0 ? 0 : (long) Math.ceil(-tokens * 1000 / rate);
+        }
+    }
+
+    /**
+     * Limits for a time of the day
+     */
+    public static class Window {
+        @Getter
+        private final LocalTime start;
+        @Getter
+        private final LocalTime end;
+        @Getter
+        private final double bytesPerSecond;
+        @Getter
+        private final double filesPerSecond;
+
+        /**
+         *
+         * @param start begin of the window
+         * @param end end of the window, before the start for windows over midnight
+         * @param bytesPerSecond maximum bytes per second, 0 for no limit
+         * @param filesPerSecond maximum files per second, 0 for no limit
+         */
+        public Window(LocalTime start, LocalTime end, double bytesPerSecond, double filesPerSecond) {
+            this.start = start;
+            this.end = end;
+            this.bytesPerSecond = bytesPerSecond;
+            this.filesPerSecond = filesPerSecond;
+        }
+
+        public boolean contains(LocalTime time) {
+            if (start.isBefore(end)) {
+                return !time.isBefore(start) && time.isBefore(end);
+            }
+            // over midnight
+            return !time.isBefore(start) || time.isBefore(end);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package de.intranda.goobi.plugins;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to the virtual threads of Java 21 and newer. The plugin is compiled for older Java versions, so the methods are called by reflection.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Check if the runtime supports virtual threads
+     */
+    public static boolean isSupported() {
+        return createFactory("journals-import-check-") != null;
+    }
+
+    /**
+     * Create an executor, which starts a new virtual thread for each task
+     *
+     * @param namePrefix prefix of the thread names, followed by a counter
+     * @return the executor or null, if the runtime does not support virtual threads
+     */
+    public static ExecutorService newExecutor(String namePrefix) {
+        ThreadFactory factory = createFactory(namePrefix);
+        if (factory == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory createFactory(String namePrefix) {
+        try {
+            // Thread.ofVirtual().name(namePrefix, 1).factory()
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // older runtime or preview feature not enabled
+            return null;
+        }
+    }
+}
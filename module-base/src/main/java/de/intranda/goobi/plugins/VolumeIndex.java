@@ -0,0 +1,156 @@
+package de.intranda.goobi.plugins;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+import de.intranda.goobi.plugins.JournalFolderScanner.VolumeFolder;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Index of the imported volume folders. For each folder the number of files, their total size and the newest modification time are stored,
+ * so later runs can detect new and changed volumes without importing the unchanged ones again.
+ *
+ * Each line contains the volume folder (journal/volume), the number of files, the size in bytes and the modification time in milliseconds,
+ * separated by tabs.
+ */
+@Log4j2
+public class VolumeIndex {
+
+    public static final String FILENAME = "journals_import_index.tsv";
+
+    @Getter
+    private final Path file;
+
+    private final Map<String, Fingerprint> volumes = new TreeMap<>();
+
+    private boolean modified;
+
+    /**
+     * Read the index, if it exists
+     *
+     * @param file index file
+     * @throws IOException if the existing index cannot be read
+     */
+    public VolumeIndex(Path file) throws IOException {
+        this.file = file;
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] parts = line.split("\t");
+                if (parts.length < 4) {
+                    continue;
+                }
+                try {
+                    volumes.put(parts[0], new Fingerprint(Integer.parseInt(parts[1]), Long.parseLong(parts[2]), Long.parseLong(parts[3])));
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring invalid index entry '{}'", line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check if a volume folder was imported before
+     *
+     * @param key volume, see {@link ImportProgressJournal#getKey(String, String)}
+     */
+    public synchronized boolean contains(String key) {
+        return volumes.containsKey(key);
+    }
+
+    /**
+     * Check if a volume folder was imported before and did not change since then
+     *
+     * @param key volume, see {@link ImportProgressJournal#getKey(String, String)}
+     * @param fingerprint current state of the folder
+     */
+    public synchronized boolean isUnchanged(String key, Fingerprint fingerprint) {
+        return fingerprint.equals(volumes.get(key));
+    }
+
+    /**
+     * Store the state of an imported volume folder
+     *
+     * @param key volume, see {@link ImportProgressJournal#getKey(String, String)}
+     * @param fingerprint state of the folder, when it was scanned
+     */
+    public synchronized void record(String key, Fingerprint fingerprint) {
+        if (!fingerprint.equals(volumes.put(key, fingerprint))) {
+            modified = true;
+        }
+    }
+
+    /**
+     * Number of volume folders in the index
+     */
+    public synchronized int size() {
+        return volumes.size();
+    }
+
+    /**
+     * Write the index, if it was changed. The file is replaced at once, so an interrupted run never leaves a partial index.
+     */
+    public synchronized void save() throws IOException {
+        if (!modified) {
+            return;
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path temp = file.resolveSibling(file.getFileName().toString() + ".part");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Fingerprint> entry : volumes.entrySet()) {
+                Fingerprint fingerprint = entry.getValue();
+                writer.write(entry.getKey() + "\t" + fingerprint.getFiles() + "\t" + fingerprint.getSize() + "\t" + fingerprint.getLastModified());
+                writer.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        modified = false;
+    }
+
+    /**
+     * Number of files, total size and newest modification time of a volume folder
+     */
+    public static class Fingerprint {
+        @Getter
+        private final int files;
+        @Getter
+        private final long size;
+        @Getter
+        private final long lastModified;
+
+        public Fingerprint(int files, long size, long lastModified) {
+            this.files = files;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Get the fingerprint of a scanned volume folder, must be called before the folder is released
+         */
+        public static Fingerprint of(VolumeFolder volumeFolder) {
+            return new Fingerprint(volumeFolder.getImages().size(), volumeFolder.getSize(), volumeFolder.getLastModified());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Fingerprint)) {
+                return false;
+            }
+            Fingerprint other = (Fingerprint) obj;
+            return files == other.files && size == other.size && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * files + Long.hashCode(size)) * 31 + Long.hashCode(lastModified);
+        }
+    }
+}
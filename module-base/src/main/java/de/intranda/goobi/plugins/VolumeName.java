@@ -0,0 +1,70 @@
+package de.intranda.goobi.plugins;
+
+import org.apache.commons.lang.StringUtils;
+
+import lombok.Getter;
+
+/**
+ * Year and volume number of a volume folder. The folder is named either PPN_yyyy, PPN_yyyy_n, yyyy or yyyy_n.
+ */
+public class VolumeName {
+
+    @Getter
+    private final String journalId;
+    @Getter
+    private final String datePart;
+    @Getter
+    private final String year;
+    // optional number, if there is more than one volume per year
+    @Getter
+    private final String issueNumber;
+
+    private VolumeName(String journalId, String datePart, String year, String issueNumber) {
+        this.journalId = journalId;
+        this.datePart = datePart;
+        this.year = year;
+        this.issueNumber = issueNumber;
+    }
+
+    /**
+     * Parse the name of a volume folder
+     *
+     * @param journalId PPN of the journal
+     * @param volumeFolder name of the volume folder
+     * @return parsed name
+     */
+    public static VolumeName parse(String journalId, String volumeFolder) {
+        String datePart = null;
+        if (volumeFolder.startsWith(journalId)) {
+            datePart = volumeFolder.replace(journalId, "").replaceFirst("_", "");
+        } else {
+            datePart = volumeFolder;
+        }
+        String issueNumber = null;
+        String year = null;
+        if (datePart.contains("_")) {
+            year = datePart.split("_")[0];
+            issueNumber = datePart.split("_")[1];
+        } else {
+            year = datePart;
+        }
+        return new VolumeName(journalId, datePart, year, issueNumber);
+    }
+
+    /**
+     * Value for CurrentNo and CurrentNoSorting
+     */
+    public String getOrder() {
+        if (StringUtils.isNotBlank(issueNumber)) {
+            return year + issueNumber;
+        }
+        return year;
+    }
+
+    /**
+     * Title of the process, also used as identifier of the volume
+     */
+    public String getProcessTitle() {
+        return journalId + "_" + datePart;
+    }
+}
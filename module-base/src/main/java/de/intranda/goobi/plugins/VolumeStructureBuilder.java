@@ -0,0 +1,155 @@
+package de.intranda.goobi.plugins;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import de.intranda.goobi.plugins.JournalFolderScanner.VolumeFolder;
+import ugh.dl.DigitalDocument;
+import ugh.dl.DocStruct;
+import ugh.dl.Metadata;
+import ugh.exceptions.UGHException;
+
+/**
+ * Adds the volume metadata, the issues and the pages of a volume folder to the catalogue record of the journal
+ */
+public class VolumeStructureBuilder {
+
+    private final RulesetTypes types;
+
+    public VolumeStructureBuilder(RulesetTypes types) {
+        this.types = types;
+    }
+
+    /**
+     * Enrich the catalogue record with the data of the volume folder
+     *
+     * @param digDoc catalogue record, the logical structure contains the journal and the volume as its first child
+     * @param volumeName parsed name of the volume folder
+     * @param volumeFolder scanned volume folder
+     * @param collections digital collections to add to the journal and the volume
+     * @return number of created pages
+     * @throws UGHException if the ruleset does not allow the metadata or structure elements
+     */
+    public int build(DigitalDocument digDoc, VolumeName volumeName, VolumeFolder volumeFolder, List<String> collections) throws UGHException {
+        PageTable pages = PageTable.create(volumeFolder);
+        buildWithoutPages(digDoc, volumeName, pages, collections);
+        addPages(digDoc, pages);
+        return pages.size();
+    }
+
+    /**
+     * Enrich the catalogue record like {@link #build(DigitalDocument, VolumeName, VolumeFolder, List)}, but without creating the pages yet.
+     * The pages are created later by {@link #addPages(DigitalDocument, PageTable)} or written by the {@link StreamingMetsWriter}.
+     *
+     * @param pages pages of the volume folder, the issues are created from it
+     * @throws UGHException if the ruleset does not allow the metadata or structure elements
+     */
+    public void buildWithoutPages(DigitalDocument digDoc, VolumeName volumeName, PageTable pages, List<String> collections) throws UGHException {
+        DocStruct anchor = digDoc.getLogicalDocStruct();
+        DocStruct volume = anchor.getAllChildren().get(0);
+        DocStruct physical = digDoc.getPhysicalDocStruct();
+
+        addVolumeMetadata(anchor, volume, physical, volumeName);
+        for (int issue = 0; issue < pages.getIssueCount(); issue++) {
+            createIssue(digDoc, volume, pages.getIssueFolder(issue));
+        }
+        addCollections(anchor, volume, collections);
+    }
+
+    /**
+     * Create the page elements and link them with the volume and the issues
+     *
+     * @param digDoc record, enriched by {@link #buildWithoutPages(DigitalDocument, VolumeName, PageTable, List)}
+     * @param pages pages of the volume folder
+     * @throws UGHException if the ruleset does not allow the page elements
+     */
+    public void addPages(DigitalDocument digDoc, PageTable pages) throws UGHException {
+        DocStruct volume = digDoc.getLogicalDocStruct().getAllChildren().get(0);
+        DocStruct physical = digDoc.getPhysicalDocStruct();
+        // the issues are the last children of the volume
+        List<DocStruct> children = volume.getAllChildren();
+        int firstIssue = children == null ? 0 : children.size() - pages.getIssueCount();
+
+        for (int page = 0; page < pages.size(); page++) {
+            // create image element
+            DocStruct dsPage = digDoc.createDocStruct(types.getPageType());
+            Metadata physNo = new Metadata(types.getPhysPageNumberType());
+            physNo.setValue(String.valueOf(page + 1));
+            dsPage.addMetadata(physNo);
+
+            dsPage.setImageName(pages.getImageName(page));
+
+            Metadata logicalPageNumber = new Metadata(types.getLogicalPageNumberType());
+            logicalPageNumber.setValue("uncounted");
+            dsPage.addMetadata(logicalPageNumber);
+
+            // add image to the volume
+            physical.addChild(dsPage);
+
+            // add image to the issue
+            int issue = pages.getIssue(page);
+            if (issue >= 0) {
+                children.get(firstIssue + issue).addReferenceTo(dsPage, "logical_physical");
+            }
+            volume.addReferenceTo(dsPage, "logical_physical");
+        }
+    }
+
+    private void addVolumeMetadata(DocStruct anchor, DocStruct volume, DocStruct physical, VolumeName volumeName) throws UGHException {
+        Metadata imagePath = new Metadata(types.getImagePathType());
+        imagePath.setValue("./images/");
+        physical.addMetadata(imagePath);
+
+        // check if anchor id is missing
+        List<? extends Metadata> anchorIds = anchor.getAllMetadataByType(types.getCatalogIdDigitalType());
+        if (anchorIds.isEmpty()) {
+            Metadata anchorIdentifier = new Metadata(types.getCatalogIdDigitalType());
+            anchorIdentifier.setValue(volumeName.getJournalId());
+            anchor.addMetadata(anchorIdentifier);
+        }
+
+        // add PublicationYear, CurrentNo and CurrentNoSorting to volume
+        Metadata publicationYear = new Metadata(types.getPulicationYearType());
+        publicationYear.setValue(volumeName.getYear());
+        volume.addMetadata(publicationYear);
+        String order = volumeName.getOrder();
+        Metadata currentNo = new Metadata(types.getCurrentNoType());
+        currentNo.setValue(order);
+        volume.addMetadata(currentNo);
+
+        Metadata currentNoSort = new Metadata(types.getCurrentNoSortType());
+        currentNoSort.setValue(order);
+        volume.addMetadata(currentNoSort);
+
+        Metadata volumeIdentifier = new Metadata(types.getCatalogIdDigitalType());
+        volumeIdentifier.setValue(volumeName.getProcessTitle());
+        volume.addMetadata(volumeIdentifier);
+    }
+
+    private void addCollections(DocStruct anchor, DocStruct volume, List<String> collections) throws UGHException {
+        for (String col : collections) {
+            Metadata md = new Metadata(types.getCollectionType());
+            md.setValue(col);
+            anchor.addMetadata(md);
+            md = new Metadata(types.getCollectionType());
+            md.setValue(col);
+            volume.addMetadata(md);
+        }
+    }
+
+    private DocStruct createIssue(DigitalDocument digDoc, DocStruct volume, String issueFolder) throws UGHException {
+        DocStruct issue = digDoc.createDocStruct(types.getIssueType());
+        volume.addChild(issue);
+        Metadata title = new Metadata(types.getTitleType());
+        title.setValue(issueFolder);
+        issue.addMetadata(title);
+        return issue;
+    }
+
+    /**
+     * Check if the file becomes a page of the volume, pdf files are skipped
+     */
+    public static boolean isPage(Path image) {
+        return !image.getFileName().toString().toLowerCase().endsWith("pdf");
+    }
+}
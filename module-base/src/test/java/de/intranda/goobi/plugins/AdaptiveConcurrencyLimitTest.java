@@ -0,0 +1,89 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class AdaptiveConcurrencyLimitTest {
+
+    @Test
+    public void testLimitGrowsWithFastResponses() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 8, 1000, 0, 0);
+        runRequests(limit, 200, 16, () -> {
+            Thread.sleep(1);
+            return "record";
+        });
+        assertEquals(8, limit.getLimit());
+        assertEquals(200, limit.getRequests());
+        assertEquals(0, limit.getInFlight());
+        assertTrue(limit.getLatency(99) >= limit.getLatency(50));
+    }
+
+    @Test
+    public void testLimitShrinksAfterFailures() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 8, 1000, 10, 1);
+        AtomicInteger calls = new AtomicInteger();
+        // the first requests fail, their repetitions succeed
+        runRequests(limit, 20, 8, () -> {
+            if (calls.incrementAndGet() <= 10) {
+                throw new IOException("Catalogue is not available");
+            }
+            return "record";
+        });
+        assertTrue(limit.getLimit() < 8);
+        assertEquals(0, limit.getFailures());
+        assertTrue(limit.getRepetitions() > 0);
+    }
+
+    @Test
+    public void testLimitShrinksAfterSlowResponses() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 4, 5, 0, 0);
+        runRequests(limit, 4, 1, () -> {
+            Thread.sleep(20);
+            return "record";
+        });
+        assertEquals(1, limit.getLimit());
+        assertTrue(limit.getLatency(50) >= 20);
+    }
+
+    @Test(expected = IOException.class)
+    public void testLastFailureIsThrown() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 0, 1, 1);
+        try {
+            limit.call(() -> {
+                throw new IOException("Catalogue is not available");
+            });
+        } finally {
+            assertEquals(1, limit.getFailures());
+            assertEquals(2, limit.getRequests());
+        }
+    }
+
+    private void runRequests(AdaptiveConcurrencyLimit limit, int requests, int threads, ResourceLimits.LimitedTask<String, Exception> task)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CompletableFuture<?>[] futures = new CompletableFuture[requests];
+            for (int i = 0; i < requests; i++) {
+                futures[i] = CompletableFuture.runAsync(() -> {
+                    try {
+                        limit.call(task);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }, executor);
+            }
+            CompletableFuture.allOf(futures).get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
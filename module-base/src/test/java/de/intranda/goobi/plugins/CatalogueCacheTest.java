@@ -0,0 +1,151 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ugh.dl.DigitalDocument;
+import ugh.dl.DocStruct;
+import ugh.dl.Fileformat;
+import ugh.dl.Prefs;
+import ugh.fileformats.mets.MetsMods;
+
+public class CatalogueCacheTest {
+
+    private Prefs prefs;
+
+    @Before
+    public void setUp() throws Exception {
+        String resourcesFolder = "src/test/resources/"; // for junit tests in eclipse
+        if (!Files.exists(Paths.get(resourcesFolder))) {
+            resourcesFolder = "target/test-classes/"; // to run mvn test from cli or in jenkins
+        }
+        prefs = new Prefs();
+        prefs.loadPrefs(resourcesFolder + "ruleset.xml");
+    }
+
+    @Test
+    public void testRecordIsRequestedOnlyOnce() throws Exception {
+        CatalogueCache cache = new CatalogueCache(10, 60000);
+        AtomicInteger requests = new AtomicInteger();
+
+        Fileformat first = cache.get("K10+", "12", "170621391", prefs, () -> {
+            requests.incrementAndGet();
+            return createRecordUnchecked();
+        });
+        Fileformat second = cache.get("K10+", "12", "170621391", prefs, () -> {
+            requests.incrementAndGet();
+            return createRecordUnchecked();
+        });
+
+        assertEquals(1, requests.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertNotNull(first);
+        assertNotNull(second);
+        // each caller gets its own copy
+        assertNotSame(first.getDigitalDocument(), second.getDigitalDocument());
+        assertNotSame(first.getDigitalDocument().getLogicalDocStruct(), second.getDigitalDocument().getLogicalDocStruct());
+        assertEquals("Periodical", second.getDigitalDocument().getLogicalDocStruct().getType().getName());
+    }
+
+    @Test
+    public void testFailedRequestIsNotCached() {
+        CatalogueCache cache = new CatalogueCache(10, 60000);
+        assertNull(cache.get("K10+", "12", "123", prefs, () -> null));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testCacheSizeIsBounded() throws Exception {
+        CatalogueCache cache = new CatalogueCache(2, 60000);
+        cache.get("K10+", "12", "1", prefs, this::createRecordUnchecked);
+        cache.get("K10+", "12", "2", prefs, this::createRecordUnchecked);
+        cache.get("K10+", "12", "3", prefs, this::createRecordUnchecked);
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void testParallelRequestsAreNotSerialized() throws Exception {
+        CatalogueCache cache = new CatalogueCache(10, 60000);
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch slowRequest = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // a slow request does not block other records
+            Future<Fileformat> slow = executor.submit(() -> cache.get("K10+", "12", "1", prefs, () -> {
+                requests.incrementAndGet();
+                await(slowRequest);
+                return createRecordUnchecked();
+            }));
+            while (requests.get() == 0) {
+                Thread.sleep(1);
+            }
+            assertNotNull(cache.get("K10+", "12", "2", prefs, this::createRecordUnchecked));
+
+            // parallel callers of the same record wait for the first request
+            List<Future<Fileformat>> waiting = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                waiting.add(executor.submit(() -> cache.get("K10+", "12", "1", prefs, () -> {
+                    requests.incrementAndGet();
+                    return createRecordUnchecked();
+                })));
+            }
+            slowRequest.countDown();
+            assertNotNull(slow.get(10, TimeUnit.SECONDS));
+            for (Future<Fileformat> future : waiting) {
+                assertNotNull(future.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, requests.get());
+            assertEquals(2, cache.getMisses());
+            assertEquals(3, cache.getHits());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Fileformat createRecordUnchecked() {
+        try {
+            return createRecord();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Fileformat createRecord() throws Exception {
+        MetsMods fileformat = new MetsMods(prefs);
+        DigitalDocument digDoc = new DigitalDocument();
+        DocStruct anchor = digDoc.createDocStruct(prefs.getDocStrctTypeByName("Periodical"));
+        DocStruct volume = digDoc.createDocStruct(prefs.getDocStrctTypeByName("PeriodicalVolume"));
+        anchor.addChild(volume);
+        digDoc.setLogicalDocStruct(anchor);
+        digDoc.setPhysicalDocStruct(digDoc.createDocStruct(prefs.getDocStrctTypeByName("BoundBook")));
+        fileformat.setDigitalDocument(digDoc);
+        return fileformat;
+    }
+}
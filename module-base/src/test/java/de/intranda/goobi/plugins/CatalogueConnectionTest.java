@@ -0,0 +1,63 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ugh.dl.Fileformat;
+import ugh.dl.Prefs;
+
+public class CatalogueConnectionTest {
+
+    private Prefs prefs;
+
+    private StubOpacPlugin catalogue;
+
+    @Before
+    public void setUp() throws Exception {
+        String resourcesFolder = "src/test/resources/"; // for junit tests in eclipse
+        if (!Files.exists(Paths.get(resourcesFolder))) {
+            resourcesFolder = "target/test-classes/"; // to run mvn test from cli or in jenkins
+        }
+        prefs = new Prefs();
+        prefs.loadPrefs(resourcesFolder + "ruleset.xml");
+        catalogue = new StubOpacPlugin(Paths.get(resourcesFolder, "pica.xml"));
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        CatalogueConnection connection = new CatalogueConnection(null, catalogue);
+        Fileformat fileformat = connection.search("170621391", prefs);
+        assertEquals("Periodical", fileformat.getDigitalDocument().getLogicalDocStruct().getType().getName());
+        assertEquals(1, catalogue.getRequests());
+    }
+
+    @Test
+    public void testSharedPluginIsNotUsedInParallel() throws Exception {
+        // the stub has no default constructor, so all threads share the same instance
+        catalogue.setLatency(50);
+        CatalogueConnection connection = new CatalogueConnection(null, catalogue);
+        List<CompletableFuture<Fileformat>> requests = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            requests.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return connection.search("170621391", prefs);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        for (CompletableFuture<Fileformat> request : requests) {
+            assertTrue(request.get() != null);
+        }
+        assertEquals(1, catalogue.getMaxParallelRequests());
+    }
+}
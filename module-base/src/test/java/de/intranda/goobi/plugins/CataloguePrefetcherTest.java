@@ -0,0 +1,85 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ugh.dl.Fileformat;
+import ugh.dl.Prefs;
+
+public class CataloguePrefetcherTest {
+
+    private Prefs prefs;
+
+    private StubOpacPlugin catalogue;
+
+    @Before
+    public void setUp() throws Exception {
+        String resourcesFolder = "src/test/resources/"; // for junit tests in eclipse
+        if (!Files.exists(Paths.get(resourcesFolder))) {
+            resourcesFolder = "target/test-classes/"; // to run mvn test from cli or in jenkins
+        }
+        prefs = new Prefs();
+        prefs.loadPrefs(resourcesFolder + "ruleset.xml");
+        catalogue = new StubOpacPlugin(Paths.get(resourcesFolder, "pica.xml"));
+    }
+
+    @Test
+    public void testDistinctRecordsAreRequestedInParallel() throws Exception {
+        catalogue.setLatency(100);
+        CataloguePrefetcher prefetcher = new CataloguePrefetcher(4, 0, 0, 0);
+        prefetcher.prefetch(Arrays.asList("1", "2", "3", "4", "1", "2"), id -> catalogue.search("12", id, null, prefs));
+
+        assertEquals(4, catalogue.getRequests());
+        assertTrue(catalogue.getMaxParallelRequests() > 1);
+        assertEquals(4, prefetcher.size());
+
+        Fileformat fileformat = prefetcher.take("1");
+        assertNotNull(fileformat);
+        assertEquals("Periodical", fileformat.getDigitalDocument().getLogicalDocStruct().getType().getName());
+        // each record is handed out only once
+        assertNull(prefetcher.take("1"));
+    }
+
+    @Test
+    public void testFailedRequestIsRepeated() throws Exception {
+        catalogue.setFailures(2);
+        CataloguePrefetcher prefetcher = new CataloguePrefetcher(1, 0, 2, 10);
+        prefetcher.prefetch(Collections.singletonList("1"), id -> catalogue.search("12", id, null, prefs));
+
+        assertEquals(3, catalogue.getRequests());
+        assertNotNull(prefetcher.take("1"));
+        assertFalse(prefetcher.isFailed("1"));
+    }
+
+    @Test
+    public void testRequestFailsAfterAllRepetitions() throws Exception {
+        catalogue.setFailures(10);
+        CataloguePrefetcher prefetcher = new CataloguePrefetcher(1, 0, 1, 10);
+        prefetcher.prefetch(Collections.singletonList("1"), id -> catalogue.search("12", id, null, prefs));
+
+        assertEquals(2, catalogue.getRequests());
+        assertTrue(prefetcher.isFailed("1"));
+        assertNull(prefetcher.take("1"));
+    }
+
+    @Test
+    public void testRateLimit() throws Exception {
+        CataloguePrefetcher prefetcher = new CataloguePrefetcher(4, 20, 0, 0);
+        long start = System.currentTimeMillis();
+        prefetcher.prefetch(Arrays.asList("1", "2", "3", "4", "5"), id -> catalogue.search("12", id, null, prefs));
+        // 20 requests per second, the fifth request starts after 200 ms
+        assertTrue(System.currentTimeMillis() - start >= 190);
+        assertEquals(5, prefetcher.size());
+    }
+}
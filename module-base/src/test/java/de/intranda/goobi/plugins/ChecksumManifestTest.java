@@ -0,0 +1,122 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.intranda.goobi.plugins.ImportMetrics.Counter;
+
+public class ChecksumManifestTest {
+
+    // sha256 of "abc"
+    private static final String ABC = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path source;
+
+    private Path master;
+
+    @Before
+    public void setUp() throws Exception {
+        source = folder.newFolder("import").toPath();
+        master = folder.getRoot().toPath().resolve("process").resolve("images").resolve("title_media");
+        Files.createDirectories(master);
+        Files.write(source.resolve("00000001.tif"), "abc".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testManifestIsRestored() throws Exception {
+        ChecksumManifest manifest = new ChecksumManifest(master);
+        assertNull(manifest.getChecksum("00000001.tif"));
+        manifest.put("00000001.tif", ABC);
+        manifest.save();
+
+        Path file = master.resolveSibling("title_media.sha256");
+        assertEquals(file, manifest.getFile());
+        assertEquals(ABC + "  00000001.tif", Files.readAllLines(file, StandardCharsets.UTF_8).get(0));
+        assertEquals(ABC, new ChecksumManifest(master).getChecksum("00000001.tif"));
+    }
+
+    @Test
+    public void testUnchangedImagesAreNotCopiedAgain() throws Exception {
+        ChecksumManifest manifest = new ChecksumManifest(master);
+        transfer(ImageTransfer.STRATEGY_COPY, manifest);
+        assertEquals(ABC, manifest.getChecksum("00000001.tif"));
+
+        ImportRunStatistics statistics = transfer(ImageTransfer.STRATEGY_COPY, manifest);
+        assertEquals(1, statistics.getCount(Counter.FILES_UNCHANGED));
+        assertEquals(0, statistics.getCount(Counter.BYTES_COPIED));
+
+        // changed source images are copied again
+        Files.write(source.resolve("00000001.tif"), "abd".getBytes(StandardCharsets.UTF_8));
+        statistics = transfer(ImageTransfer.STRATEGY_COPY, manifest);
+        assertEquals(0, statistics.getCount(Counter.FILES_UNCHANGED));
+        assertArrayEquals("abd".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(master.resolve("00000001.tif")));
+    }
+
+    @Test
+    public void testMovedImagesHaveChecksum() throws Exception {
+        ChecksumManifest manifest = new ChecksumManifest(master);
+        transfer(ImageTransfer.STRATEGY_MOVE, manifest);
+        assertFalse(Files.exists(source.resolve("00000001.tif")));
+        assertTrue(Files.exists(master.resolve("00000001.tif")));
+        assertEquals(ABC, manifest.getChecksum("00000001.tif"));
+    }
+
+    @Test
+    public void testReimportedImagesAreLinkedToTheStoredCopy() throws Exception {
+        Path storeFolder = folder.getRoot().toPath().resolve(ChecksumStore.FOLDER);
+        ChecksumStore store = new ChecksumStore(storeFolder);
+        ImportRunStatistics statistics = transfer(ImageTransfer.STRATEGY_COPY, new ChecksumManifest(master), master, store);
+        assertEquals(3, statistics.getCount(Counter.BYTES_COPIED));
+        store.save();
+
+        // the process was created, the volume is imported into a new process by the next run
+        Path otherMaster = folder.getRoot().toPath().resolve("other").resolve("images").resolve("title_media");
+        Files.createDirectories(otherMaster);
+        store = new ChecksumStore(storeFolder);
+        assertEquals(ABC, store.getChecksum(source.resolve("00000001.tif"), 3,
+                Files.getLastModifiedTime(source.resolve("00000001.tif")).to(TimeUnit.NANOSECONDS)));
+        ChecksumManifest manifest = new ChecksumManifest(otherMaster);
+        statistics = transfer(ImageTransfer.STRATEGY_COPY, manifest, otherMaster, store);
+        assertEquals(1, statistics.getCount(Counter.FILES_DEDUPLICATED));
+        assertEquals(0, statistics.getCount(Counter.BYTES_COPIED));
+        assertEquals(ABC, manifest.getChecksum("00000001.tif"));
+        assertArrayEquals("abc".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(otherMaster.resolve("00000001.tif")));
+
+        // a changed image is copied again
+        Files.write(source.resolve("00000001.tif"), "abcd".getBytes(StandardCharsets.UTF_8));
+        statistics = transfer(ImageTransfer.STRATEGY_COPY, manifest, otherMaster, store);
+        assertEquals(0, statistics.getCount(Counter.FILES_DEDUPLICATED));
+        assertEquals(4, statistics.getCount(Counter.BYTES_COPIED));
+        assertArrayEquals("abc".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(master.resolve("00000001.tif")));
+    }
+
+    private ImportRunStatistics transfer(String strategy, ChecksumManifest manifest) throws Exception {
+        return transfer(strategy, manifest, master, null);
+    }
+
+    private ImportRunStatistics transfer(String strategy, ChecksumManifest manifest, Path imageFolder, ChecksumStore store) throws Exception {
+        ImportRunStatistics statistics = new ImportRunStatistics(ImportMetrics.NOOP);
+        try (ImageTransfer transfer = new ImageTransfer(strategy, 1, 10, false)) {
+            transfer.setMetrics(statistics);
+            transfer.setChecksumStore(store);
+            transfer.submit(source.resolve("00000001.tif"), imageFolder.resolve("00000001.tif"), manifest).get();
+        }
+        return statistics;
+    }
+}
@@ -0,0 +1,70 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.intranda.goobi.plugins.ImportPlan.PlannedVolume;
+
+public class ImportPlanTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path basedir;
+
+    @Before
+    public void setUp() throws Exception {
+        basedir = folder.newFolder("import").toPath();
+        new SyntheticJournalTree().journals(2).volumes(3).issues(2).pages(4).imageSize(10).create(basedir);
+        // empty volume folder
+        Files.createDirectories(basedir.resolve("100000000").resolve("100000000_1900_2"));
+    }
+
+    @Test
+    public void testPlan() {
+        ImportPlan plan = ImportPlan.create(new JournalFolderScanner().scan(basedir));
+        assertEquals(7, plan.getVolumes().size());
+        assertEquals(6, plan.getProcessCount());
+        assertEquals(1, plan.getEmptyFolderCount());
+        assertEquals(48, plan.getPageCount());
+        assertEquals(480, plan.getSize());
+
+        PlannedVolume volume = plan.getVolumes().get(0);
+        assertEquals("100000000_1800", volume.getProcessTitle());
+        assertEquals("1800", volume.getYear());
+        assertEquals(2, volume.getIssues());
+        assertEquals(8, volume.getPages());
+        assertEquals(80, volume.getSize());
+        assertFalse(volume.isEmpty());
+
+        volume = plan.getVolumes().get(3);
+        assertEquals("100000000_1900_2", volume.getProcessTitle());
+        assertEquals("19002", volume.getCurrentNo());
+        assertTrue(volume.isEmpty());
+    }
+
+    @Test
+    public void testOutput() throws Exception {
+        ImportPlan plan = ImportPlan.create(new JournalFolderScanner().scan(basedir));
+        StringWriter csv = new StringWriter();
+        plan.writeCsv(csv);
+        String[] lines = csv.toString().split("\n");
+        assertEquals(8, lines.length);
+        assertEquals("100000000,100000000_1800,100000000_1800,1800,1800,2,8,80,false", lines[1]);
+
+        StringWriter json = new StringWriter();
+        plan.writeJson(json);
+        assertTrue(json.toString().contains("\"processes\": 6,"));
+        assertTrue(json.toString().contains("\"processTitle\": \"100000001_1802\""));
+    }
+}
@@ -0,0 +1,74 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.intranda.goobi.plugins.ImportProgressJournal.State;
+
+public class ImportProgressJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testProgressIsRestored() throws Exception {
+        Path file = folder.getRoot().toPath().resolve(ImportProgressJournal.FILENAME);
+        try (ImportProgressJournal journal = new ImportProgressJournal(file)) {
+            assertNull(journal.getState("123/1900"));
+            journal.record("123/1900", State.SCANNED);
+            journal.record("123/1900", State.METS_WRITTEN);
+            journal.record("123/1901", State.IMAGES_TRANSFERRED);
+        }
+
+        try (ImportProgressJournal journal = new ImportProgressJournal(file)) {
+            assertEquals(State.METS_WRITTEN, journal.getState("123/1900"));
+            assertFalse(journal.isFinished("123/1900", false));
+            assertTrue(journal.isFinished("123/1901", false));
+            assertFalse(journal.isFinished("123/1901", true));
+
+            List<String> unfinished = journal.getUnfinishedVolumes("123", true);
+            assertEquals(2, unfinished.size());
+            assertEquals(1, journal.getUnfinishedVolumes("123", false).size());
+            assertTrue(journal.getUnfinishedVolumes("456", false).isEmpty());
+        }
+    }
+
+    @Test
+    public void testFinishedVolumesAreRemoved() throws Exception {
+        Path file = folder.getRoot().toPath().resolve(ImportProgressJournal.FILENAME);
+        ImportProgressJournal journal = new ImportProgressJournal(file);
+        journal.record("123/1900", State.METS_WRITTEN);
+        journal.record("123/1901", State.IMAGES_TRANSFERRED);
+        journal.removeFinished(false);
+
+        try (ImportProgressJournal restored = new ImportProgressJournal(file)) {
+            assertEquals(State.METS_WRITTEN, restored.getState("123/1900"));
+            assertNull(restored.getState("123/1901"));
+            restored.record("123/1900", State.CLEANED);
+            restored.removeFinished(true);
+        }
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void testIncompleteLineIsIgnored() throws Exception {
+        Path file = folder.getRoot().toPath().resolve(ImportProgressJournal.FILENAME);
+        Files.write(file, "123/1900\tCLEANED\n123/1901".getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE);
+        try (ImportProgressJournal journal = new ImportProgressJournal(file)) {
+            assertTrue(journal.isFinished("123/1900", true));
+            assertNull(journal.getState("123/1901"));
+        }
+    }
+}
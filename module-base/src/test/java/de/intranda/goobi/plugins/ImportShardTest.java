@@ -0,0 +1,124 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.intranda.goobi.plugins.JournalFolderScanner.JournalFolder;
+
+public class ImportShardTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path basedir;
+
+    private Map<String, JournalFolder> journals;
+
+    @Before
+    public void setUp() throws Exception {
+        basedir = folder.newFolder("import").toPath();
+        new SyntheticJournalTree().journals(5).volumes(4).pages(2).imageSize(10).create(basedir);
+        journals = new JournalFolderScanner().scan(basedir);
+    }
+
+    @Test
+    public void testShardsAreDisjoint() {
+        for (String strategy : new String[] { ImportShard.STRATEGY_HASH, ImportShard.STRATEGY_SIZE }) {
+            Set<String> all = new HashSet<>();
+            int total = 0;
+            for (int i = 0; i < 3; i++) {
+                Set<String> volumes = new ImportShard(i, 3, strategy).getVolumes(journals);
+                total += volumes.size();
+                all.addAll(volumes);
+            }
+            assertEquals(20, total);
+            assertEquals(20, all.size());
+        }
+    }
+
+    @Test
+    public void testSizeBasedShardsAreBalanced() {
+        for (int i = 0; i < 4; i++) {
+            assertEquals(5, new ImportShard(i, 4, ImportShard.STRATEGY_SIZE).getVolumes(journals).size());
+        }
+    }
+
+    @Test
+    public void testSizesOfTheListingGiveTheSameShards() throws Exception {
+        JournalListingIndex listing = new JournalListingIndex(basedir, basedir.resolve(JournalListingIndex.FILENAME));
+        listing.refresh();
+        listing.save();
+        Map<String, Long> sizes = new JournalListingIndex(basedir, listing.getFile()).getVolumeSizes();
+        assertEquals(20, sizes.size());
+        for (int i = 0; i < 4; i++) {
+            ImportShard shard = new ImportShard(i, 4, ImportShard.STRATEGY_SIZE);
+            assertEquals(shard.getVolumes(journals), shard.getVolumesBySize(sizes));
+        }
+    }
+
+    @Test
+    public void testAssignedShardsAreKept() throws Exception {
+        Path assignmentFile = folder.newFolder("goobi").toPath().resolve(ImportShard.ASSIGNMENT_FILENAME);
+        Map<String, Long> sizes = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            sizes.put("100000000/" + i, 100L);
+        }
+        Set<String> first = new ImportShard(0, 2, ImportShard.STRATEGY_SIZE, assignmentFile).getVolumesBySize(sizes);
+        assertEquals(5, first.size());
+
+        // a large new volume would change the whole distribution, but only the new volume gets a shard
+        Map<String, Long> changed = new HashMap<>(sizes);
+        changed.put("100000001/1", 1000L);
+        Set<String> second = new ImportShard(1, 2, ImportShard.STRATEGY_SIZE, assignmentFile).getVolumesBySize(changed);
+        Set<String> firstAgain = new ImportShard(0, 2, ImportShard.STRATEGY_SIZE, assignmentFile).getVolumesBySize(changed);
+        assertTrue(firstAgain.containsAll(first));
+        Set<String> all = new HashSet<>(firstAgain);
+        all.addAll(second);
+        assertEquals(11, all.size());
+        assertEquals(11, firstAgain.size() + second.size());
+    }
+
+    @Test
+    public void testHashBasedShardsKeepJournalsTogether() {
+        ImportShard shard = new ImportShard(1, 3, ImportShard.STRATEGY_HASH);
+        for (String volume : shard.getVolumes(journals)) {
+            assertTrue(shard.containsJournal(volume.substring(0, volume.indexOf('/'))));
+        }
+    }
+
+    @Test
+    public void testClaim() throws Exception {
+        Path importFolder = folder.newFolder("goobi").toPath();
+        ImportShard first = new ImportShard(0, 2, ImportShard.STRATEGY_HASH);
+        ImportShard second = new ImportShard(1, 2, ImportShard.STRATEGY_HASH);
+        assertTrue(first.claim(importFolder, "100000000_1800"));
+        // an interrupted import can be continued by the same node
+        assertTrue(first.claim(importFolder, "100000000_1800"));
+        assertFalse(second.claim(importFolder, "100000000_1800"));
+        assertTrue(second.claim(importFolder, "100000000_1801"));
+
+        Path lockFile = importFolder.resolve(ImportShard.LOCK_FOLDER).resolve("100000000_1800.lock");
+        assertTrue(new String(Files.readAllBytes(lockFile), StandardCharsets.UTF_8).endsWith("\t0"));
+
+        // only the own claims are released
+        second.release(importFolder, "100000000_1800");
+        assertTrue(Files.exists(lockFile));
+        first.release(importFolder, "100000000_1800");
+        assertFalse(Files.exists(lockFile));
+        assertTrue(second.claim(importFolder, "100000000_1800"));
+    }
+}
@@ -0,0 +1,63 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.intranda.goobi.plugins.JournalFolderScanner.JournalFolder;
+import de.intranda.goobi.plugins.JournalFolderScanner.VolumeFolder;
+
+public class JournalFolderScannerTest {
+
+    private Path basedir;
+
+    @Before
+    public void setUp() {
+        String resourcesFolder = "src/test/resources/"; // for junit tests in eclipse
+        if (!Files.exists(Paths.get(resourcesFolder))) {
+            resourcesFolder = "target/test-classes/"; // to run mvn test from cli or in jenkins
+        }
+        basedir = Paths.get(resourcesFolder);
+    }
+
+    @Test
+    public void testListJournals() {
+        List<String> journals = new JournalFolderScanner().listJournals(basedir);
+        assertEquals(1, journals.size());
+        assertEquals("170621391", journals.get(0));
+    }
+
+    @Test
+    public void testScan() {
+        Map<String, JournalFolder> journals = new JournalFolderScanner().scan(basedir, Collections.singletonList("170621391"));
+        assertEquals(1, journals.size());
+        JournalFolder journal = journals.get("170621391");
+        assertEquals(2, journal.getVolumes().size());
+
+        VolumeFolder volume = journal.getVolumes().get("1900");
+        assertEquals(3, volume.getImages().size());
+        assertTrue(volume.getIssues().isEmpty());
+        assertEquals("00000001.tif", volume.getImages().get(0).getFileName().toString());
+
+        volume = journal.getVolumes().get("1901");
+        assertEquals(2, volume.getImages().size());
+        assertEquals(2, volume.getIssues().size());
+        assertEquals(1, volume.getIssues().get("01").getImages().size());
+        assertEquals(1, volume.getIssues().get("02").getImages().size());
+    }
+
+    @Test
+    public void testUnselectedJournalsAreSkipped() {
+        Map<String, JournalFolder> journals = new JournalFolderScanner().scan(basedir, Collections.singletonList("123"));
+        assertTrue(journals.isEmpty());
+    }
+}
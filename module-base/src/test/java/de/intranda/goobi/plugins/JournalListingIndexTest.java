@@ -0,0 +1,84 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.intranda.goobi.plugins.JournalListingIndex.JournalEntry;
+
+public class JournalListingIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testOnlyChangedJournalsAreScanned() throws Exception {
+        Path basedir = folder.newFolder("import").toPath();
+        new SyntheticJournalTree().journals(3).volumes(2).issues(2).pages(3).imageSize(10).create(basedir);
+        Path file = basedir.resolve(JournalListingIndex.FILENAME);
+
+        JournalListingIndex listing = new JournalListingIndex(basedir, file);
+        assertEquals(3, listing.refresh());
+        listing.save();
+        JournalEntry entry = listing.getJournals(null, 0, 0).get(0);
+        assertEquals("100000000", entry.getId());
+        assertEquals(2, entry.getVolumes());
+        assertEquals(12, entry.getImages());
+        assertEquals(120, entry.getBytes());
+
+        // a new volume of the second journal, a new image in an issue of the third journal and a new journal
+        Path journalFolder = basedir.resolve("100000001");
+        Files.createDirectories(journalFolder.resolve("100000001_1900").resolve("001"));
+        Files.write(journalFolder.resolve("100000001_1900").resolve("001").resolve("00000001.tif"), new byte[10]);
+        Files.setLastModifiedTime(journalFolder, FileTime.fromMillis(Files.getLastModifiedTime(journalFolder).toMillis() + 2000));
+        Path issueFolder = basedir.resolve("100000002").resolve("100000002_1800").resolve("001");
+        Files.write(issueFolder.resolve("00000099.tif"), new byte[10]);
+        Files.createDirectories(basedir.resolve("123X").resolve("1900"));
+
+        listing = new JournalListingIndex(basedir, file);
+        assertEquals(3, listing.size());
+        assertEquals(0, new JournalListingIndex(basedir, file).getJournals("123", 0, 0).size());
+        assertEquals(2, listing.refresh(60000));
+        listing.save();
+        assertEquals(0, listing.refresh(60000));
+        assertEquals(3, listing.getJournals("100000001", 0, 0).get(0).getVolumes());
+        assertEquals(12, listing.getJournals("100000002", 0, 0).get(0).getImages());
+        assertEquals(1, listing.getJournals("123x", 0, 0).get(0).getVolumes());
+
+        // the unchanged journal folders are scanned again after the rescan interval
+        Thread.sleep(10);
+        assertEquals(4, listing.refresh(5));
+        assertEquals(13, listing.getJournals("100000002", 0, 0).get(0).getImages());
+        listing.save();
+        // no temporary files are left
+        try (Stream<Path> files = Files.list(basedir)) {
+            assertEquals(1, files.filter(p -> p.getFileName().toString().startsWith(JournalListingIndex.FILENAME)).count());
+        }
+    }
+
+    @Test
+    public void testPaging() throws Exception {
+        Path basedir = folder.newFolder("import").toPath();
+        new SyntheticJournalTree().journals(5).volumes(1).pages(1).create(basedir);
+        JournalListingIndex listing = new JournalListingIndex(basedir, basedir.resolve(JournalListingIndex.FILENAME));
+        listing.refresh();
+
+        List<JournalEntry> page = listing.getJournals("10000000", 2, 2);
+        assertEquals(2, page.size());
+        assertEquals("100000002", page.get(0).getId());
+        assertEquals("100000003", page.get(1).getId());
+        assertEquals(1, listing.getJournals(null, 4, 10).size());
+        assertEquals(5, listing.count(""));
+        assertEquals(1, listing.count("4"));
+        assertTrue(listing.getJournals("999", 0, 0).isEmpty());
+    }
+}
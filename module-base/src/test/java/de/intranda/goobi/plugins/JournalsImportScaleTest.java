@@ -0,0 +1,196 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.commons.configuration.XMLConfiguration;
+import org.easymock.EasyMock;
+import org.goobi.production.enums.ImportReturnValue;
+import org.goobi.production.importer.ImportObject;
+import org.goobi.production.importer.Record;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.powermock.api.easymock.PowerMock;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import de.intranda.goobi.plugins.ImportMetrics.Counter;
+import de.sub.goobi.config.ConfigPlugins;
+import de.sub.goobi.config.ConfigurationHelper;
+import de.unigoettingen.sub.search.opac.ConfigOpac;
+import de.unigoettingen.sub.search.opac.ConfigOpacCatalogue;
+import lombok.extern.log4j.Log4j2;
+import ugh.dl.Prefs;
+
+/**
+ * Imports a generated import folder with a local catalogue and logs the throughput. The size of the import folder and the threads can be
+ * changed with system properties, e.g.
+ *
+ * <pre>
+ * mvn test -Dtest=JournalsImportScaleTest -Dscale.journals=20 -Dscale.volumes=10 -Dscale.pages=200 -Dscale.imageSize=100000 -Dscale.parallelism=4
+ * </pre>
+ *
+ * With scale.minVolumesPerSecond the test fails, if the import is slower.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ ConfigPlugins.class, ConfigOpac.class, ConfigurationHelper.class })
+@PowerMockIgnore({ "javax.management.*", "javax.net.ssl.*", "jdk.internal.reflect.*", "com.sun.org.apache.xerces.*", "javax.xml.*",
+        "org.xml.*", "org.w3c.*" })
+@Log4j2
+public class JournalsImportScaleTest {
+
+    private static final int JOURNALS = Integer.getInteger("scale.journals", 2);
+    private static final int VOLUMES = Integer.getInteger("scale.volumes", 3);
+    private static final int ISSUES = Integer.getInteger("scale.issues", 2);
+    private static final int PAGES = Integer.getInteger("scale.pages", 5);
+    private static final int IMAGE_SIZE = Integer.getInteger("scale.imageSize", 1024);
+    private static final int PARALLELISM = Integer.getInteger("scale.parallelism", 2);
+    private static final double MIN_VOLUMES_PER_SECOND = Double.parseDouble(System.getProperty("scale.minVolumesPerSecond", "0"));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path basedir;
+
+    private Path importFolder;
+
+    private Prefs prefs;
+
+    private StubOpacPlugin catalogue;
+
+    @Before
+    public void setUp() throws Exception {
+        String resourcesFolder = "src/test/resources/"; // for junit tests in eclipse
+        if (!Files.exists(Paths.get(resourcesFolder))) {
+            resourcesFolder = "target/test-classes/"; // to run mvn test from cli or in jenkins
+        }
+        prefs = new Prefs();
+        prefs.loadPrefs(resourcesFolder + "ruleset.xml");
+        catalogue = new ThreadCatalogue();
+
+        basedir = folder.newFolder("journals").toPath();
+        importFolder = folder.newFolder("import").toPath();
+
+        PowerMock.mockStatic(ConfigPlugins.class);
+        EasyMock.expect(ConfigPlugins.getPluginConfig(EasyMock.anyString())).andReturn(getConfig()).anyTimes();
+        PowerMock.replay(ConfigPlugins.class);
+
+        ConfigOpac configOpacMock = EasyMock.createMock(ConfigOpac.class);
+        EasyMock.expect(configOpacMock.getAllCatalogues(EasyMock.anyString())).andReturn(getAllCatalogues()).anyTimes();
+        EasyMock.replay(configOpacMock);
+
+        PowerMock.mockStatic(ConfigOpac.class);
+        EasyMock.expect(ConfigOpac.getInstance()).andReturn(configOpacMock).anyTimes();
+        PowerMock.replay(ConfigOpac.class);
+
+        ConfigurationHelper configurationHelperMock = EasyMock.createMock(ConfigurationHelper.class);
+        EasyMock.expect(configurationHelperMock.useS3()).andReturn(false).anyTimes();
+        EasyMock.expect(configurationHelperMock.getConfigurationFolder()).andReturn(folder.getRoot().toString()).anyTimes();
+        EasyMock.expect(configurationHelperMock.getProcessImagesMasterDirectoryName()).andReturn("{processtitle}_media").anyTimes();
+        EasyMock.replay(configurationHelperMock);
+
+        PowerMock.mockStatic(ConfigurationHelper.class);
+        EasyMock.expect(ConfigurationHelper.getInstance()).andReturn(configurationHelperMock).anyTimes();
+        PowerMock.replay(ConfigurationHelper.class);
+    }
+
+    @Test
+    public void testImport() throws Exception {
+        List<String> journalIds = new SyntheticJournalTree().journals(JOURNALS)
+                .volumes(VOLUMES)
+                .issues(ISSUES)
+                .pages(PAGES)
+                .imageSize(IMAGE_SIZE)
+                .create(basedir);
+
+        JournalsImportPlugin plugin = new JournalsImportPlugin();
+        // the configuration is cached per workflow template, each run gets its own
+        plugin.setWorkflowTitle("scale-" + System.nanoTime());
+        plugin.setPrefs(prefs);
+        plugin.setImportFolder(importFolder.toString());
+        List<Record> records = plugin.generateRecordsFromFilenames(journalIds);
+
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        long start = System.nanoTime();
+        List<ImportObject> importObjects = plugin.generateFiles(records);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+
+        int volumes = JOURNALS * VOLUMES;
+        assertEquals(volumes, importObjects.size());
+        for (ImportObject io : importObjects) {
+            assertEquals(io.getErrorMessage(), ImportReturnValue.ExportFinished, io.getImportReturnValue());
+            assertTrue(Files.exists(Paths.get(io.getMetsFilename())));
+        }
+        long pages = plugin.getStatistics().getCount(Counter.PAGES);
+        long bytes = plugin.getStatistics().getCount(Counter.BYTES_COPIED);
+        assertEquals((long) volumes * Math.max(1, ISSUES) * PAGES, pages);
+
+        double volumesPerSecond = volumes / seconds;
+        log.info(String.format("%d journals, %d volumes, %d pages, %d MB in %.1f s: %.1f volumes/s, %.0f pages/s, %.1f MB/s, peak heap %d MB",
+                JOURNALS, volumes, pages, bytes / 1000000, seconds, volumesPerSecond, pages / seconds, bytes / 1e6 / seconds, peakHeap / 1000000));
+        assertTrue("Import is slower than " + MIN_VOLUMES_PER_SECOND + " volumes/s", volumesPerSecond >= MIN_VOLUMES_PER_SECOND);
+    }
+
+    /**
+     * Can be created again by the catalogue connection, so each catalogue thread gets its own instance like with the real catalogue plugins
+     */
+    public static class ThreadCatalogue extends StubOpacPlugin {
+
+        public ThreadCatalogue() {
+            super(Paths.get(Files.exists(Paths.get("src/test/resources/")) ? "src/test/resources/" : "target/test-classes/", "pica.xml"));
+        }
+    }
+
+    private XMLConfiguration getConfig() {
+        String xml = "<config_plugin><config><template>*</template>" //
+                + "<runAsGoobiScript>false</runAsGoobiScript>" //
+                + "<importFolder>" + basedir + "</importFolder>" //
+                + "<catalogueName>K10+</catalogueName>" //
+                + "<imageImportStrategy>copy</imageImportStrategy>" //
+                + "<parallelism>" + PARALLELISM + "</parallelism>" //
+                + "<transferThreads>" + PARALLELISM + "</transferThreads>" //
+                + "</config></config_plugin>";
+        XMLConfiguration config = new XMLConfiguration();
+        config.setDelimiterParsingDisabled(true);
+        try {
+            config.load(new StringReader(xml));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return config;
+    }
+
+    private List<ConfigOpacCatalogue> getAllCatalogues() {
+        List<ConfigOpacCatalogue> catalogues = new ArrayList<>();
+        ConfigOpacCatalogue coc = new ConfigOpacCatalogue("K10+", "K 10 plus", "localhost", "2.1", "iktlist.xml", 80, "utf8", "",
+                new ArrayList<>(), "pica", "http://", new HashMap<>());
+        coc.setOpacPlugin(catalogue);
+        catalogues.add(coc);
+        return catalogues;
+    }
+}
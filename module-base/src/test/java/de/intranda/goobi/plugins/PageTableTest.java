@@ -0,0 +1,47 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.intranda.goobi.plugins.JournalFolderScanner.VolumeFolder;
+
+public class PageTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPages() throws Exception {
+        Path basedir = folder.newFolder("import").toPath();
+        Path volume = basedir.resolve("123").resolve("123_1900");
+        Files.createDirectories(volume.resolve("01-a"));
+        Files.createDirectories(volume.resolve("02"));
+        Files.write(volume.resolve("01-a").resolve("00000001.tif"), new byte[0]);
+        Files.write(volume.resolve("01-a").resolve("00000002.tif"), new byte[0]);
+        Files.write(volume.resolve("02").resolve("00000001.tif"), new byte[0]);
+        Files.write(volume.resolve("02").resolve("00000002.pdf"), new byte[0]);
+        Files.write(volume.resolve("00000009.tif"), new byte[0]);
+
+        VolumeFolder volumeFolder = new JournalFolderScanner().scan(basedir).get("123").getVolumes().get("123_1900");
+        PageTable pages = PageTable.create(volumeFolder);
+
+        assertEquals(4, pages.size());
+        assertEquals(2, pages.getIssueCount());
+        assertEquals("01-a", pages.getIssueFolder(0));
+        assertEquals("02", pages.getIssueFolder(1));
+
+        assertEquals("01a_00000001.tif", pages.getImageName(0));
+        assertEquals(0, pages.getIssue(0));
+        assertEquals("01a_00000002.tif", pages.getImageName(1));
+        assertEquals("02_00000001.tif", pages.getImageName(2));
+        assertEquals(1, pages.getIssue(2));
+        assertEquals("00000009.tif", pages.getImageName(3));
+        assertEquals(-1, pages.getIssue(3));
+    }
+}
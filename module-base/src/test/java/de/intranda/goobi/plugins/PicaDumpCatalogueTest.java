@@ -0,0 +1,77 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ugh.dl.Fileformat;
+import ugh.dl.Prefs;
+
+public class PicaDumpCatalogueTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Prefs prefs;
+
+    private Path dump;
+
+    @Before
+    public void setUp() throws Exception {
+        String resourcesFolder = "src/test/resources/"; // for junit tests in eclipse
+        if (!Files.exists(Paths.get(resourcesFolder))) {
+            resourcesFolder = "target/test-classes/"; // to run mvn test from cli or in jenkins
+        }
+        prefs = new Prefs();
+        prefs.loadPrefs(resourcesFolder + "ruleset.xml");
+
+        // the same record with different PPNs, one of them with a title in the second byte range of UTF-8
+        String collection = new String(Files.readAllBytes(Paths.get(resourcesFolder, "pica.xml")), StandardCharsets.UTF_8);
+        String record = collection.substring(collection.indexOf("<record>"), collection.indexOf("</record>") + "</record>".length());
+        StringBuilder content = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<collection>\n");
+        for (int i = 5; i > 0; i--) {
+            content.append(record.replace("<subfield code=\"0\">170621391</subfield>", "<subfield code=\"0\">10000000" + i + "</subfield>"));
+            content.append("\n<!-- Zeitschrift f\u00fcr \u00c4hnliches -->\n");
+        }
+        content.append("</collection>\n");
+        dump = folder.getRoot().toPath().resolve("dump.xml");
+        Files.write(dump, content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        try (PicaDumpCatalogue catalogue = PicaDumpCatalogue.open(dump)) {
+            assertEquals(5, catalogue.getSize());
+            for (int i = 1; i <= 5; i++) {
+                Fileformat fileformat = catalogue.search("10000000" + i, prefs);
+                assertEquals("Periodical", fileformat.getDigitalDocument().getLogicalDocStruct().getType().getName());
+            }
+            assertNull(catalogue.search("170621391", prefs));
+            assertNull(catalogue.search("", prefs));
+        }
+    }
+
+    @Test
+    public void testIndexIsReused() throws Exception {
+        PicaDumpCatalogue.open(dump).close();
+        Path index = PicaDumpCatalogue.getIndexFile(dump);
+        assertTrue(Files.exists(index));
+        long lastModified = Files.getLastModifiedTime(index).toMillis();
+
+        Thread.sleep(20);
+        try (PicaDumpCatalogue catalogue = PicaDumpCatalogue.open(dump)) {
+            assertEquals(lastModified, Files.getLastModifiedTime(index).toMillis());
+            assertEquals(5, catalogue.getSize());
+        }
+    }
+}
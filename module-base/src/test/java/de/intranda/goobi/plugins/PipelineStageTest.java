@@ -0,0 +1,68 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class PipelineStageTest {
+
+    @Test
+    public void testFullQueueBlocksTheCaller() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        try (PipelineStage stage = new PipelineStage("test", 1, 1)) {
+            Runnable task = () -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+            // one running and one waiting task
+            stage.execute(task);
+            stage.execute(task);
+
+            Thread caller = new Thread(() -> stage.execute(task));
+            caller.start();
+            caller.join(200);
+            assertTrue(caller.isAlive());
+            assertEquals(1, stage.getQueueDepth());
+
+            latch.countDown();
+            caller.join(5000);
+            assertFalse(caller.isAlive());
+            waitForCompletedTasks(stage, 3);
+            assertEquals(3, stage.getCompletedTasks());
+            assertTrue(stage.getUtilization() > 0);
+        }
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        // falls back to platform threads on older runtimes
+        try (PipelineStage stage = new PipelineStage("test", 2, 10, true)) {
+            assertEquals(VirtualThreads.isSupported(), stage.isVirtual());
+            CompletableFuture<?>[] tasks = new CompletableFuture[20];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = CompletableFuture.runAsync(() -> {
+                }, stage);
+            }
+            CompletableFuture.allOf(tasks).get(5, TimeUnit.SECONDS);
+            waitForCompletedTasks(stage, 20);
+            assertEquals(20, stage.getCompletedTasks());
+        }
+    }
+
+    // the statistics of a task are updated right after its result
+    private void waitForCompletedTasks(PipelineStage stage, int tasks) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (stage.getCompletedTasks() < tasks && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Node;
+
+import de.intranda.goobi.plugins.JournalFolderScanner.VolumeFolder;
+import ugh.dl.DigitalDocument;
+import ugh.dl.DocStruct;
+import ugh.dl.Fileformat;
+import ugh.dl.Metadata;
+import ugh.dl.MetadataType;
+import ugh.dl.Prefs;
+import ugh.dl.Reference;
+import ugh.fileformats.mets.MetsMods;
+
+public class StreamingMetsWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Prefs prefs;
+
+    private Node picaRecord;
+
+    private VolumeFolder volumeFolder;
+
+    @Before
+    public void setUp() throws Exception {
+        String resourcesFolder = "src/test/resources/"; // for junit tests in eclipse
+        if (!Files.exists(Paths.get(resourcesFolder))) {
+            resourcesFolder = "target/test-classes/"; // to run mvn test from cli or in jenkins
+        }
+        prefs = new Prefs();
+        prefs.loadPrefs(resourcesFolder + "ruleset.xml");
+        picaRecord = DocumentBuilderFactory.newInstance()
+                .newDocumentBuilder()
+                .parse(Paths.get(resourcesFolder, "pica.xml").toFile())
+                .getElementsByTagName("record")
+                .item(0);
+
+        Path basedir = folder.newFolder("import").toPath();
+        new SyntheticJournalTree().journals(1).volumes(1).issues(3).pages(5).create(basedir);
+        // images directly in the volume folder and a pdf file, which is not a page
+        Path volume = basedir.resolve("100000000").resolve("100000000_1800");
+        Files.write(volume.resolve("00000001.tif"), new byte[0]);
+        Files.write(volume.resolve("00000002.pdf"), new byte[0]);
+        volumeFolder = new JournalFolderScanner().scan(basedir).get("100000000").getVolumes().get("100000000_1800");
+    }
+
+    @Test
+    public void testOutputIsEquivalentToMetsMods() throws Exception {
+        VolumeStructureBuilder builder = new VolumeStructureBuilder(RulesetTypes.getInstance(prefs));
+        VolumeName volumeName = VolumeName.parse("100000000", volumeFolder.getName());
+        List<String> collections = Collections.singletonList("Zeitschriften");
+        Path outputFolder = folder.newFolder("output").toPath();
+
+        // in memory
+        DigitalDocument expectedDocument = new PicaRecordConverter(prefs).convert(picaRecord).getDigitalDocument();
+        int expectedPages = builder.build(expectedDocument, volumeName, volumeFolder, collections);
+        String expectedFile = outputFolder.resolve("expected.xml").toString();
+        MetsMods mm = new MetsMods(prefs);
+        mm.setDigitalDocument(expectedDocument);
+        mm.write(expectedFile);
+
+        // streamed
+        DigitalDocument streamedDocument = new PicaRecordConverter(prefs).convert(picaRecord).getDigitalDocument();
+        PageTable pages = PageTable.create(volumeFolder);
+        builder.buildWithoutPages(streamedDocument, volumeName, pages, collections);
+        String streamedFile = outputFolder.resolve("streamed.xml").toString();
+        new StreamingMetsWriter(prefs).write(streamedDocument, pages, streamedFile);
+
+        assertEquals(16, expectedPages);
+        assertEquals(expectedPages, pages.size());
+        assertTrue(Files.exists(outputFolder.resolve("streamed_anchor.xml")));
+        assertTrue(!Files.exists(Paths.get(streamedFile + ".part")));
+
+        // read both files again and compare them
+        DigitalDocument expected = read(expectedFile);
+        DigitalDocument streamed = read(streamedFile);
+
+        List<DocStruct> expectedPageList = expected.getPhysicalDocStruct().getAllChildren();
+        List<DocStruct> streamedPageList = streamed.getPhysicalDocStruct().getAllChildren();
+        assertEquals(16, streamedPageList.size());
+        for (int i = 0; i < expectedPageList.size(); i++) {
+            assertEquals(describePage(expectedPageList.get(i)), describePage(streamedPageList.get(i)));
+        }
+
+        DocStruct expectedVolume = expected.getLogicalDocStruct().getAllChildren().get(0);
+        DocStruct streamedVolume = streamed.getLogicalDocStruct().getAllChildren().get(0);
+        assertEquals(describeMetadata(expectedVolume), describeMetadata(streamedVolume));
+        assertEquals(expectedVolume.getAllToReferences().size(), streamedVolume.getAllToReferences().size());
+        assertEquals(3, streamedVolume.getAllChildren().size());
+        for (int i = 0; i < 3; i++) {
+            DocStruct expectedIssue = expectedVolume.getAllChildren().get(i);
+            DocStruct streamedIssue = streamedVolume.getAllChildren().get(i);
+            assertEquals(describeMetadata(expectedIssue), describeMetadata(streamedIssue));
+            assertEquals(describeReferences(expectedIssue), describeReferences(streamedIssue));
+        }
+        assertEquals(describeMetadata(expected.getLogicalDocStruct()), describeMetadata(streamed.getLogicalDocStruct()));
+    }
+
+    @Test
+    public void testStalePartFileIsReplaced() throws Exception {
+        VolumeStructureBuilder builder = new VolumeStructureBuilder(RulesetTypes.getInstance(prefs));
+        VolumeName volumeName = VolumeName.parse("100000000", volumeFolder.getName());
+        Path outputFolder = folder.newFolder("output").toPath();
+        String metsFile = outputFolder.resolve("meta.xml").toString();
+        // left behind by an aborted run
+        Files.write(Paths.get(metsFile + ".part"), "<mets".getBytes("UTF-8"));
+
+        DigitalDocument document = new PicaRecordConverter(prefs).convert(picaRecord).getDigitalDocument();
+        PageTable pages = PageTable.create(volumeFolder);
+        builder.buildWithoutPages(document, volumeName, pages, Collections.singletonList("Zeitschriften"));
+        new StreamingMetsWriter(prefs).write(document, pages, metsFile);
+
+        assertTrue(!Files.exists(Paths.get(metsFile + ".part")));
+        assertEquals(16, read(metsFile).getPhysicalDocStruct().getAllChildren().size());
+    }
+
+    private DigitalDocument read(String filename) throws Exception {
+        Fileformat fileformat = new MetsMods(prefs);
+        fileformat.read(filename);
+        return fileformat.getDigitalDocument();
+    }
+
+    private String describePage(DocStruct page) {
+        return describeMetadata(page) + " " + page.getImageName();
+    }
+
+    private String describeMetadata(DocStruct docStruct) {
+        List<String> values = new ArrayList<>();
+        if (docStruct.getAllMetadata() != null) {
+            for (Metadata md : docStruct.getAllMetadata()) {
+                MetadataType type = md.getType();
+                values.add(type.getName() + "=" + md.getValue());
+            }
+        }
+        return docStruct.getType().getName() + values;
+    }
+
+    private String describeReferences(DocStruct docStruct) {
+        List<String> pages = new ArrayList<>();
+        for (Reference reference : docStruct.getAllToReferences()) {
+            pages.add(describePage(reference.getTarget()));
+        }
+        return pages.toString();
+    }
+}
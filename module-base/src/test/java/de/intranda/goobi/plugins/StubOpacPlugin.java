@@ -0,0 +1,70 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import de.unigoettingen.sub.search.opac.ConfigOpacCatalogue;
+import lombok.Getter;
+import lombok.Setter;
+import ugh.dl.Fileformat;
+import ugh.dl.Prefs;
+
+/**
+ * Catalogue plugin for tests, returns the record of a local PICA+ file for every PPN
+ */
+public class StubOpacPlugin extends PicaOpacImport {
+
+    private final Path picaFile;
+
+    // number of requests that fail, before the catalogue answers
+    @Setter
+    private int failures;
+
+    // response time of each request in milliseconds
+    @Setter
+    private long latency;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final AtomicInteger runningRequests = new AtomicInteger();
+
+    // highest number of requests at the same time
+    @Getter
+    private volatile int maxParallelRequests;
+
+    public StubOpacPlugin(Path picaFile) {
+        this.picaFile = picaFile;
+    }
+
+    @Override
+    public Fileformat search(String inSuchfeld, String inSuchbegriff, ConfigOpacCatalogue coc, Prefs inPrefs) throws Exception {
+        int running = runningRequests.incrementAndGet();
+        synchronized (this) {
+            maxParallelRequests = Math.max(maxParallelRequests, running);
+        }
+        try {
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+            if (requests.incrementAndGet() <= failures) {
+                throw new IOException("Catalogue is not available");
+            }
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            Document document = factory.newDocumentBuilder().parse(picaFile.toFile());
+            Node record = document.getElementsByTagName("record").item(0);
+            return new PicaRecordConverter(inPrefs).convert(record);
+        } finally {
+            runningRequests.decrementAndGet();
+        }
+    }
+
+    public int getRequests() {
+        return requests.get();
+    }
+}
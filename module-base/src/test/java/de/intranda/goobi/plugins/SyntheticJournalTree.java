@@ -0,0 +1,99 @@
+package de.intranda.goobi.plugins;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates an import folder with generated journals, volumes, issues and dummy images
+ */
+public class SyntheticJournalTree {
+
+    private int journals = 1;
+    private int volumes = 1;
+    private int issues = 0;
+    private int pages = 10;
+    private int imageSize = 0;
+
+    /**
+     * number of journal folders
+     */
+    public SyntheticJournalTree journals(int journals) {
+        this.journals = journals;
+        return this;
+    }
+
+    /**
+     * number of volume folders per journal
+     */
+    public SyntheticJournalTree volumes(int volumes) {
+        this.volumes = volumes;
+        return this;
+    }
+
+    /**
+     * number of issue folders per volume, 0 to put the images directly into the volume folder
+     */
+    public SyntheticJournalTree issues(int issues) {
+        this.issues = issues;
+        return this;
+    }
+
+    /**
+     * number of images per issue, or per volume if there are no issues
+     */
+    public SyntheticJournalTree pages(int pages) {
+        this.pages = pages;
+        return this;
+    }
+
+    /**
+     * size of each image in bytes
+     */
+    public SyntheticJournalTree imageSize(int imageSize) {
+        this.imageSize = imageSize;
+        return this;
+    }
+
+    /**
+     * Create the folders and images
+     *
+     * @param basedir import folder
+     * @return names of the created journal folders
+     * @throws IOException
+     */
+    public List<String> create(Path basedir) throws IOException {
+        byte[] image = new byte[imageSize];
+        List<String> journalIds = new ArrayList<>();
+        for (int j = 0; j < journals; j++) {
+            String journalId = String.valueOf(100000000 + j);
+            journalIds.add(journalId);
+            for (int v = 0; v < volumes; v++) {
+                Path volumeFolder = basedir.resolve(journalId).resolve(journalId + "_" + (1800 + v));
+                if (issues == 0) {
+                    createImages(volumeFolder, image);
+                }
+                for (int i = 1; i <= issues; i++) {
+                    createImages(volumeFolder.resolve(String.format("%03d", i)), image);
+                }
+            }
+        }
+        return journalIds;
+    }
+
+    private void createImages(Path folder, byte[] image) throws IOException {
+        Files.createDirectories(folder);
+        for (int p = 1; p <= pages; p++) {
+            Files.write(folder.resolve(String.format("%08d.tif", p)), image);
+        }
+    }
+
+    /**
+     * Total number of images in the tree
+     */
+    public long getImageCount() {
+        return (long) journals * volumes * Math.max(issues, 1) * pages;
+    }
+}
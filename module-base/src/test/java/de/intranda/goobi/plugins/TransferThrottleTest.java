@@ -0,0 +1,78 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.intranda.goobi.plugins.TransferThrottle.Window;
+
+public class TransferThrottleTest {
+
+    @Test
+    public void testBytesPerSecond() throws Exception {
+        // one second of tokens at the start, then 100 KB per 100 ms
+        TransferThrottle throttle = new TransferThrottle(1000000, 0, new ArrayList<>());
+        assertTrue(throttle.isEnabled());
+        long start = System.nanoTime();
+        for (int i = 0; i < 13; i++) {
+            throttle.acquireBytes(100000);
+        }
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        assertTrue("Read too fast: " + elapsed + " ms", elapsed >= 250);
+        assertTrue(throttle.getWaitTime() >= 250);
+    }
+
+    @Test
+    public void testFilesPerSecond() throws Exception {
+        TransferThrottle throttle = new TransferThrottle(0, 20, new ArrayList<>());
+        long start = System.nanoTime();
+        for (int i = 0; i < 30; i++) {
+            throttle.acquireFile();
+        }
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        assertTrue("Too many files: " + elapsed + " ms", elapsed >= 450);
+    }
+
+    @Test
+    public void testWindows() throws Exception {
+        List<Window> windows = Arrays.asList(new Window(LocalTime.of(8, 0), LocalTime.of(18, 0), 1000000, 10),
+                new Window(LocalTime.of(22, 0), LocalTime.of(6, 0), 0, 0));
+
+        assertEquals(10, createThrottle(windows, LocalTime.of(12, 0)).getCurrentWindow().getFilesPerSecond(), 0);
+        assertEquals(0, createThrottle(windows, LocalTime.of(23, 0)).getCurrentWindow().getFilesPerSecond(), 0);
+        assertEquals(0, createThrottle(windows, LocalTime.of(5, 59)).getCurrentWindow().getFilesPerSecond(), 0);
+        assertNull(createThrottle(windows, LocalTime.of(20, 0)).getCurrentWindow());
+
+        // no limit at night
+        TransferThrottle throttle = createThrottle(windows, LocalTime.of(23, 0));
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            throttle.acquireFile();
+        }
+        assertTrue((System.nanoTime() - start) / 1000000 < 1000);
+        assertEquals(0, throttle.getWaitTime());
+    }
+
+    @Test
+    public void testUnlimited() {
+        assertFalse(TransferThrottle.UNLIMITED.isEnabled());
+    }
+
+    private TransferThrottle createThrottle(List<Window> windows, LocalTime time) {
+        ZoneId zone = ZoneId.systemDefault();
+        Instant instant = LocalDate.of(2024, 1, 15).atTime(time).atZone(zone).toInstant();
+        return new TransferThrottle(0, 0, windows, Clock.fixed(instant, zone));
+    }
+}
@@ -0,0 +1,55 @@
+package de.intranda.goobi.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.intranda.goobi.plugins.JournalFolderScanner.VolumeFolder;
+import de.intranda.goobi.plugins.VolumeIndex.Fingerprint;
+
+public class VolumeIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testChangedVolumesAreDetected() throws Exception {
+        Path basedir = folder.newFolder("import").toPath();
+        new SyntheticJournalTree().journals(1).volumes(2).pages(3).imageSize(10).create(basedir);
+        Path file = folder.getRoot().toPath().resolve(VolumeIndex.FILENAME);
+
+        VolumeIndex index = new VolumeIndex(file);
+        for (VolumeFolder volume : scan(basedir).getVolumes().values()) {
+            assertFalse(index.isUnchanged(getKey(volume), Fingerprint.of(volume)));
+            index.record(getKey(volume), Fingerprint.of(volume));
+        }
+        index.save();
+
+        // a new image in the first volume
+        Path volumeFolder = basedir.resolve("100000000").resolve("100000000_1800");
+        Files.write(volumeFolder.resolve("00000099.tif"), new byte[10]);
+
+        index = new VolumeIndex(file);
+        assertEquals(2, index.size());
+        VolumeFolder changed = scan(basedir).getVolumes().get("100000000_1800");
+        VolumeFolder unchanged = scan(basedir).getVolumes().get("100000000_1801");
+        assertTrue(index.contains(getKey(changed)));
+        assertFalse(index.isUnchanged(getKey(changed), Fingerprint.of(changed)));
+        assertTrue(index.isUnchanged(getKey(unchanged), Fingerprint.of(unchanged)));
+    }
+
+    private JournalFolderScanner.JournalFolder scan(Path basedir) {
+        return new JournalFolderScanner().scan(basedir).get("100000000");
+    }
+
+    private String getKey(VolumeFolder volume) {
+        return ImportProgressJournal.getKey("100000000", volume.getName());
+    }
+}
@@ -0,0 +1,73 @@
+package de.intranda.goobi.plugins.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import de.intranda.goobi.plugins.PicaRecordConverter;
+import ugh.dl.Fileformat;
+import ugh.dl.Prefs;
+
+/**
+ * Ruleset and catalogue record of the unit tests, the catalogue is replaced by the bundled pica.xml
+ */
+public class BenchmarkResources {
+
+    private final Prefs prefs;
+
+    private final Element picaRecord;
+
+    private final PicaRecordConverter converter;
+
+    public BenchmarkResources(Path tempFolder) throws Exception {
+        Path ruleset = extract("ruleset.xml", tempFolder);
+        prefs = new Prefs();
+        prefs.loadPrefs(ruleset.toString());
+
+        Path pica = extract("pica.xml", tempFolder);
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        Document document = factory.newDocumentBuilder().parse(pica.toFile());
+        picaRecord = (Element) document.getElementsByTagName("record").item(0);
+        converter = new PicaRecordConverter(prefs);
+    }
+
+    public Prefs getPrefs() {
+        return prefs;
+    }
+
+    /**
+     * Get a fresh catalogue record of the journal
+     */
+    public Fileformat getCatalogueRecord() throws Exception {
+        return converter.convert(picaRecord);
+    }
+
+    private static Path extract(String name, Path tempFolder) throws IOException {
+        Path file = tempFolder.resolve(name);
+        try (InputStream in = BenchmarkResources.class.getClassLoader().getResourceAsStream(name)) {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    /**
+     * Delete a folder with all its content
+     */
+    public static void delete(Path folder) throws IOException {
+        if (!Files.exists(folder)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(folder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package de.intranda.goobi.plugins.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.intranda.goobi.plugins.ImageTransfer;
+
+/**
+ * Staging of the images into the process folder: copy vs. move vs. link
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ImageTransferBenchmark {
+
+    @Param({ "copy", "move", "link" })
+    private String strategy;
+
+    @Param({ "100" })
+    private int images;
+
+    @Param({ "1048576" })
+    private int imageSize;
+
+    @Param({ "2" })
+    private int threads;
+
+    private Path tempFolder;
+
+    private List<Path> sources;
+
+    private Path destinationFolder;
+
+    private ImageTransfer transfer;
+
+    @Setup(Level.Trial)
+    public void createTransfer() throws Exception {
+        tempFolder = Files.createTempDirectory("journals-transfer");
+        transfer = new ImageTransfer(strategy, threads, images, false);
+    }
+
+    @Setup(Level.Invocation)
+    public void createImages() throws Exception {
+        Path sourceFolder = tempFolder.resolve("source");
+        destinationFolder = tempFolder.resolve("destination");
+        BenchmarkResources.delete(sourceFolder);
+        BenchmarkResources.delete(destinationFolder);
+        Files.createDirectories(sourceFolder);
+        Files.createDirectories(destinationFolder);
+        byte[] image = new byte[imageSize];
+        sources = new ArrayList<>();
+        for (int i = 1; i <= images; i++) {
+            sources.add(Files.write(sourceFolder.resolve(String.format("%08d.tif", i)), image));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteImages() throws Exception {
+        transfer.close();
+        BenchmarkResources.delete(tempFolder);
+    }
+
+    @Benchmark
+    public void transferImages() {
+        List<CompletableFuture<Void>> transfers = new ArrayList<>();
+        for (Path source : sources) {
+            transfers.add(transfer.submit(source, destinationFolder.resolve(source.getFileName())));
+        }
+        ImageTransfer.allOf(transfers).join();
+    }
+}
@@ -0,0 +1,74 @@
+package de.intranda.goobi.plugins.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.intranda.goobi.plugins.JournalFolderScanner;
+import de.intranda.goobi.plugins.JournalFolderScanner.JournalFolder;
+import de.intranda.goobi.plugins.SyntheticJournalTree;
+
+/**
+ * Scanning of the import folder, for journal trees of different size
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScannerBenchmark {
+
+    @Param({ "10" })
+    private int journals;
+
+    @Param({ "20" })
+    private int volumes;
+
+    @Param({ "0", "30" })
+    private int issues;
+
+    @Param({ "20" })
+    private int pages;
+
+    private Path basedir;
+
+    private List<String> journalIds;
+
+    @Setup(Level.Trial)
+    public void createTree() throws Exception {
+        basedir = Files.createTempDirectory("journals-scan");
+        journalIds = new SyntheticJournalTree().journals(journals).volumes(volumes).issues(issues).pages(pages).create(basedir);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTree() throws Exception {
+        BenchmarkResources.delete(basedir);
+    }
+
+    @Benchmark
+    public List<String> listJournals() {
+        return new JournalFolderScanner().listJournals(basedir);
+    }
+
+    @Benchmark
+    public Map<String, JournalFolder> scan() {
+        return new JournalFolderScanner().scan(basedir, journalIds);
+    }
+}
@@ -0,0 +1,127 @@
+package de.intranda.goobi.plugins.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.intranda.goobi.plugins.JournalFolderScanner;
+import de.intranda.goobi.plugins.JournalFolderScanner.VolumeFolder;
+import de.intranda.goobi.plugins.PageTable;
+import de.intranda.goobi.plugins.RulesetTypes;
+import de.intranda.goobi.plugins.StreamingMetsWriter;
+import de.intranda.goobi.plugins.SyntheticJournalTree;
+import de.intranda.goobi.plugins.VolumeName;
+import de.intranda.goobi.plugins.VolumeStructureBuilder;
+import ugh.dl.DigitalDocument;
+import ugh.dl.Fileformat;
+import ugh.fileformats.mets.MetsMods;
+
+/**
+ * Building the logical and physical structure of a volume with N issues and M pages per issue, and writing the METS file. The page table
+ * benchmarks create the page elements only while the file is written, run them with -prof gc to compare the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StructureBenchmark {
+
+    @Param({ "10", "100", "300" })
+    private int issues;
+
+    @Param({ "10", "40" })
+    private int pages;
+
+    private Path tempFolder;
+
+    private BenchmarkResources resources;
+
+    private VolumeStructureBuilder builder;
+
+    private VolumeFolder volumeFolder;
+
+    private VolumeName volumeName;
+
+    private List<String> collections = Collections.singletonList("Newspapers");
+
+    // fresh catalogue record for each invocation
+    private DigitalDocument catalogueRecord;
+
+    // complete volume for each invocation of the METS benchmark
+    private DigitalDocument volume;
+
+    // volume without pages for each invocation of the streaming METS benchmark
+    private DigitalDocument volumeWithoutPages;
+
+    private PageTable pageTable;
+
+    @Setup(Level.Trial)
+    public void createVolume() throws Exception {
+        tempFolder = Files.createTempDirectory("journals-structure");
+        resources = new BenchmarkResources(tempFolder);
+        builder = new VolumeStructureBuilder(RulesetTypes.getInstance(resources.getPrefs()));
+
+        Path basedir = tempFolder.resolve("import");
+        List<String> journalIds = new SyntheticJournalTree().issues(issues).pages(pages).create(basedir);
+        volumeFolder = new JournalFolderScanner().scan(basedir, journalIds).get(journalIds.get(0)).getVolumes().values().iterator().next();
+        volumeName = VolumeName.parse(journalIds.get(0), volumeFolder.getName());
+    }
+
+    @Setup(Level.Invocation)
+    public void createRecord() throws Exception {
+        catalogueRecord = resources.getCatalogueRecord().getDigitalDocument();
+        volume = resources.getCatalogueRecord().getDigitalDocument();
+        builder.build(volume, volumeName, volumeFolder, collections);
+        volumeWithoutPages = resources.getCatalogueRecord().getDigitalDocument();
+        pageTable = PageTable.create(volumeFolder);
+        builder.buildWithoutPages(volumeWithoutPages, volumeName, pageTable, collections);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteVolume() throws Exception {
+        BenchmarkResources.delete(tempFolder);
+    }
+
+    @Benchmark
+    public DigitalDocument buildStructure() throws Exception {
+        builder.build(catalogueRecord, volumeName, volumeFolder, collections);
+        return catalogueRecord;
+    }
+
+    @Benchmark
+    public boolean writeMets() throws Exception {
+        Fileformat mm = new MetsMods(resources.getPrefs());
+        mm.setDigitalDocument(volume);
+        return mm.write(tempFolder.resolve("meta.xml").toString());
+    }
+
+    @Benchmark
+    public PageTable buildPageTable() throws Exception {
+        PageTable pages = PageTable.create(volumeFolder);
+        builder.buildWithoutPages(catalogueRecord, volumeName, pages, collections);
+        return pages;
+    }
+
+    @Benchmark
+    public void writeMetsStreaming() throws Exception {
+        new StreamingMetsWriter(resources.getPrefs()).write(volumeWithoutPages, pageTable, tempFolder.resolve("meta.xml").toString());
+    }
+}